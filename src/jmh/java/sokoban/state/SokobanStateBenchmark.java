@@ -0,0 +1,181 @@
+package sokoban.state;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sokoban.solver.AStarSearch;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks of the methods of {@link SokobanState} called for every node of a search.
+ * <p>
+ * The states measured are the ones along a shortest solution of the built-in level, so
+ * the boxes are spread over the board the way they are during a real search. Every
+ * invocation takes the next state in turn, which keeps the JIT compiler from folding
+ * the results into constants.
+ * <p>
+ * Run with {@code mvn -P jmh compile exec:exec}, the allocation rates reported by
+ * {@code -prof gc} come with every benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SokobanStateBenchmark {
+
+    private SokobanState[] states;
+
+    private SokobanState[] copies;
+
+    private Direction[] moves;
+
+    private Direction[] walks;
+
+    private int index;
+
+    /**
+     * Collects the states along a shortest solution of the built-in level.
+     */
+    @Setup
+    public void setUp() {
+        var state = new SokobanState();
+        var solution = new AStarSearch().solve(PackedState.of(state)).orElseThrow();
+        var collected = new ArrayList<SokobanState>();
+        for (var direction : solution.moves()) {
+            collected.add(state.clone());
+            state.makeMove(direction);
+        }
+        collected.add(state);
+
+        states = collected.toArray(SokobanState[]::new);
+        copies = new SokobanState[states.length];
+        moves = new Direction[states.length];
+        walks = new Direction[states.length];
+        for (var i = 0; i < states.length; i++) {
+            copies[i] = states[i].clone();
+            moves[i] = i < solution.moves().size() ? solution.moves().get(i) : Direction.LEFT;
+            walks[i] = walkOf(states[i]);
+        }
+    }
+
+    /**
+     * Returns a move the player can take back, so it leaves the boxes where they are.
+     */
+    private static Direction walkOf(SokobanState state) {
+        for (var direction : Direction.values()) {
+            if (!state.isLegalMove(direction)) {
+                continue;
+            }
+            var moved = state.clone();
+            moved.makeMove(direction);
+            if (moved.isLegalMove(direction.opposite())) {
+                moved.makeMove(direction.opposite());
+                if (moved.equals(state)) {
+                    return direction;
+                }
+            }
+        }
+        throw new IllegalStateException("The player cannot move without pushing: " + state);
+    }
+
+    private int next() {
+        var i = index;
+        index = i + 1 == states.length ? 0 : i + 1;
+        return i;
+    }
+
+    /**
+     * {@return whether the move of the solution is legal in the next state}
+     */
+    @Benchmark
+    public boolean isLegalMove() {
+        var i = next();
+        return states[i].isLegalMove(moves[i]);
+    }
+
+    /**
+     * Moves the player of the next state and back, which is two calls of {@link SokobanState#makeMove}.
+     */
+    @Benchmark
+    public void makeMoveAndBack(Blackhole blackhole) {
+        var i = next();
+        var state = states[i];
+        state.makeMove(walks[i]);
+        state.makeMove(walks[i].opposite());
+        blackhole.consume(state);
+    }
+
+    /**
+     * {@return a successor of the next state, cloned and moved the way the searches generate them}
+     */
+    @Benchmark
+    public SokobanState cloneAndMakeMove() {
+        var i = next();
+        var child = states[i].clone();
+        child.makeMove(walks[i]);
+        return child;
+    }
+
+    /**
+     * {@return the legal moves of the next state}
+     */
+    @Benchmark
+    public Object getLegalMoves() {
+        return states[next()].getLegalMoves();
+    }
+
+    /**
+     * {@return a copy of the next state}
+     */
+    @Benchmark
+    public SokobanState cloneState() {
+        return states[next()].clone();
+    }
+
+    /**
+     * {@return whether the next state equals a copy of itself, the worst case of a hash lookup}
+     */
+    @Benchmark
+    public boolean equalsCopy() {
+        var i = next();
+        return states[i].equals(copies[i]);
+    }
+
+    /**
+     * {@return whether the next state equals the state after it, which it never does}
+     */
+    @Benchmark
+    public boolean equalsOther() {
+        var i = next();
+        return states[i].equals(copies[i + 1 == copies.length ? 0 : i + 1]);
+    }
+
+    /**
+     * {@return the hash code of the next state}
+     */
+    @Benchmark
+    public int hashCodeState() {
+        return states[next()].hashCode();
+    }
+
+    /**
+     * {@return whether the next state is solved}
+     */
+    @Benchmark
+    public boolean isSolved() {
+        return states[next()].isSolved();
+    }
+
+}
@@ -9,15 +9,19 @@ import javafx.scene.Scene;
 import javafx.stage.Stage;
 import org.tinylog.Logger;
 import sokoban.results.GameResultRepository;
+import sokoban.state.Level;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 
 /**
  * The main class of the Sokoban game application.
+ * The built-in level is played, unless the path of an XSB file is given as the first
+ * command-line argument, optionally followed by the number of the level in the file.
  */
 public final class GameApplication extends Application {
 
@@ -26,6 +30,7 @@ public final class GameApplication extends Application {
                 @Override
                 protected void configure() {
                     bind(GameResultRepository.class).in(Singleton.class);
+                    bind(Level.class).toInstance(level);
                 }
             }
     ));
@@ -33,15 +38,18 @@ public final class GameApplication extends Application {
     @Inject
     private FXMLLoader fxmlLoader;
 
+    private Level level;
+
     /**
      * Starts the Sokoban game application.
      *
      * @param stage the primary stage for the application
-     * @throws IOException if an I/O error occurs during loading of the opening screen
+     * @throws IOException if an I/O error occurs during loading of the level or the opening screen
      */
     @Override
     public void start(Stage stage) throws IOException {
         Logger.info("Starting application");
+        level = loadLevel(getParameters().getRaw());
         context.init();
         fxmlLoader.setLocation(getClass().getResource("/fxml/opening.fxml"));
         Parent root = fxmlLoader.load();
@@ -51,4 +59,17 @@ public final class GameApplication extends Application {
         stage.show();
     }
 
+    private static Level loadLevel(List<String> args) throws IOException {
+        if (args.isEmpty()) {
+            return Level.builtIn();
+        }
+        var levels = Level.load(Path.of(args.get(0)));
+        var number = args.size() > 1 ? Integer.parseInt(args.get(1)) : 1;
+        if (number < 1 || number > levels.size()) {
+            throw new IllegalArgumentException("The file has " + levels.size() + " levels, there is no level " + number + ".");
+        }
+        Logger.info("Loading level {} of {}", number, args.get(0));
+        return levels.get(number - 1);
+    }
+
 }
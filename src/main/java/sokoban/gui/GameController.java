@@ -21,7 +21,9 @@ import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCodeCombination;
 import javafx.scene.input.KeyCombination;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.RowConstraints;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 import lombok.NonNull;
@@ -30,6 +32,7 @@ import org.tinylog.Logger;
 import sokoban.results.GameResult;
 import sokoban.results.GameResultRepository;
 import sokoban.state.Direction;
+import sokoban.state.Level;
 import sokoban.state.Position;
 import sokoban.state.SokobanState;
 import util.javafx.Stopwatch;
@@ -71,6 +74,9 @@ public final class GameController {
     @Inject
     private GameResultRepository gameResultRepository;
 
+    @Inject
+    private Level level;
+
     @Setter
     private String playerName;
 
@@ -80,7 +86,7 @@ public final class GameController {
 
     private ImageView[] pieceViews;
 
-    private SokobanState state;
+    private ObservableSokobanState state;
 
     private Stopwatch stopwatch = new Stopwatch();
 
@@ -93,14 +99,20 @@ public final class GameController {
         stopwatchLabel.textProperty().bind(stopwatch.hhmmssProperty());
         isSolved.addListener(this::handleSolved);
 
-        pieceViews = Stream.of("man.png", "box.png", "box_2.png", "box_3.png")
+        var images = Stream.of("man.png", "box.png", "box_2.png", "box_3.png")
                 .map(s -> "/images/" + s)
                 .peek(s -> Logger.debug("Loading image resource {}", s))
                 .map(Image::new)
-                .map(ImageView::new)
-                .toArray(ImageView[]::new);
+                .toArray(Image[]::new);
+        // The boxes take turns with the three box images.
+        pieceViews = new ImageView[level.getBoxCount() + 1];
+        pieceViews[0] = new ImageView(images[0]);
+        for (var i = 1; i < pieceViews.length; i++) {
+            pieceViews[i] = new ImageView(images[1 + (i - 1) % (images.length - 1)]);
+        }
 
-        state = new SokobanState();
+        Logger.info("Playing level {}", level.name());
+        state = new ObservableSokobanState(level.createState());
         populateGrid();
 
         registerKeyEventHandler();
@@ -131,7 +143,7 @@ public final class GameController {
                 keyEvent -> {
                     if (restartKeyCombination.match(keyEvent)) {
                         Logger.debug("Restarting game...");
-                        state = new SokobanState();
+                        state = new ObservableSokobanState(level.createState());
                         resetGame();
                     } else if (quitKeyCombination.match(keyEvent)) {
                         Logger.debug("Exiting...");
@@ -197,7 +209,7 @@ public final class GameController {
         Logger.debug("{} is pressed", ((Button) actionEvent.getSource()).getText());
         Logger.info("Resetting game");
         stopwatch.stop();
-        state = new SokobanState();
+        state = new ObservableSokobanState(level.createState());
         resetGame();
     }
 
@@ -237,11 +249,28 @@ public final class GameController {
     }
 
     private void populateGrid() {
-        for (int row = 0; row < grid.getRowCount(); row++) {
-            for (int col = 0; col < grid.getColumnCount(); col++) {
+        var board = level.board();
+        grid.getColumnConstraints().clear();
+        grid.getRowConstraints().clear();
+        for (int col = 0; col < board.width(); col++) {
+            var constraints = new ColumnConstraints();
+            constraints.setPercentWidth(100.0 / board.width());
+            grid.getColumnConstraints().add(constraints);
+        }
+        for (int row = 0; row < board.height(); row++) {
+            var constraints = new RowConstraints();
+            constraints.setPercentHeight(100.0 / board.height());
+            grid.getRowConstraints().add(constraints);
+        }
+        // Keep the squares of the built-in board, 50 pixels wide, unless the level does not fit.
+        var squareSize = Math.min(50.0, 900.0 / Math.max(board.width(), board.height()));
+        grid.setPrefSize(squareSize * board.width(), squareSize * board.height());
+
+        for (int row = 0; row < board.height(); row++) {
+            for (int col = 0; col < board.width(); col++) {
                 final var square = new StackPane();
                 square.getStyleClass().add("square");
-                var objectOnPosition = state.board.getPosition(row,col);
+                var objectOnPosition = board.getPosition(row,col);
 
                 if (objectOnPosition != SokobanState.WALL &&
                         objectOnPosition != SokobanState.OUT_OF_BOARD &&
@@ -268,8 +297,8 @@ public final class GameController {
     }
 
     private void clearState() {
-        for (int row = 0; row < grid.getRowCount(); row++) {
-            for (int col = 0; col < grid.getColumnCount(); col++) {
+        for (int row = 0; row < level.board().height(); row++) {
+            for (int col = 0; col < level.board().width(); col++) {
                 getGridNodeAtPosition(grid, row, col)
                         .ifPresent(node -> ((StackPane) node).getChildren().clear());
             }
@@ -279,25 +308,12 @@ public final class GameController {
     private void showState() {
         clearState();
 
-        Position playerPosition = state.getPosition(SokobanState.PLAYER_POSITION);
-        getGridNodeAtPosition(grid, playerPosition)
-                .ifPresent(node -> ((StackPane) node).getChildren().add(pieceViews[0]));
-
-
-        Position firstBoxPosition = state.getPosition(SokobanState.FIRST_BOX_POSITION);
-        getGridNodeAtPosition(grid, firstBoxPosition)
-                .ifPresent(node -> ((StackPane) node).getChildren().add(pieceViews[1]));
-
-
-        Position secondBoxPosition = state.getPosition(SokobanState.SECOND_BOX_POSITION);
-        getGridNodeAtPosition(grid, secondBoxPosition)
-                .ifPresent(node -> ((StackPane) node).getChildren().add(pieceViews[2]));
-
-
-        Position thirdBoxPosition = state.getPosition(SokobanState.THIRD_BOX_POSITION);
-        getGridNodeAtPosition(grid, thirdBoxPosition)
-                .ifPresent(node -> ((StackPane) node).getChildren().add(pieceViews[3]));
-        
+        for (var i = 0; i < state.getPositionCount(); i++) {
+            var pieceView = pieceViews[i];
+            Position position = state.getPosition(i);
+            getGridNodeAtPosition(grid, position)
+                    .ifPresent(node -> ((StackPane) node).getChildren().add(pieceView));
+        }
     }
 
     private Optional<Direction> getDirectionFromClickPosition(
@@ -0,0 +1,113 @@
+package sokoban.gui;
+
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import sokoban.state.Direction;
+import sokoban.state.Position;
+import sokoban.state.SokobanState;
+
+
+/**
+ * Observable adapter around a {@link SokobanState} for the user interface.
+ * Moves are delegated to the wrapped state, and the positions of the player and
+ * the boxes, as well as the solved flag, are published through JavaFX properties.
+ */
+final class ObservableSokobanState {
+
+    private final SokobanState state;
+
+    private final ReadOnlyObjectWrapper<Position>[] positions;
+
+    private final ReadOnlyBooleanWrapper solved;
+
+    /**
+     * Constructs an ObservableSokobanState wrapping the specified state.
+     *
+     * @param state the state to be observed
+     */
+    @SuppressWarnings("unchecked")
+    ObservableSokobanState(SokobanState state) {
+        this.state = state;
+        positions = new ReadOnlyObjectWrapper[state.getBoxCount() + 1];
+        for (var i = 0; i < positions.length; i++) {
+            positions[i] = new ReadOnlyObjectWrapper<>(state.getPosition(i));
+        }
+        solved = new ReadOnlyBooleanWrapper(state.isSolved());
+    }
+
+    /**
+     * {@return the number of positions, the player and the boxes}
+     */
+    int getPositionCount() {
+        return positions.length;
+    }
+
+    /**
+     * Gets the position of an object.
+     *
+     * @param index the index of the position
+     * @return the position of an object
+     */
+    Position getPosition(int index) {
+        return positions[index].get();
+    }
+
+    /**
+     * Gets the read-only property for the position at the specified index.
+     *
+     * @param index the index of the position
+     * @return the read-only property for the position at the specified index
+     */
+    ReadOnlyObjectProperty<Position> positionProperty(int index) {
+        return positions[index].getReadOnlyProperty();
+    }
+
+    /**
+     * {@return the read-only property that tells whether the game is solved}
+     */
+    ReadOnlyBooleanProperty solvedProperty() {
+        return solved.getReadOnlyProperty();
+    }
+
+    /**
+     * Checks if the game is solved.
+     *
+     * @return true if the game is solved, false otherwise
+     */
+    boolean isSolved() {
+        return solved.get();
+    }
+
+    /**
+     * Checks if a move in the specified direction is legal.
+     *
+     * @param direction the direction to check
+     * @return true if the move is legal, false otherwise
+     */
+    boolean isLegalMove(Direction direction) {
+        return state.isLegalMove(direction);
+    }
+
+    /**
+     * Makes the move on the wrapped state and updates the properties.
+     * The solved flag is read from the wrapped state, which counts the boxes on targets,
+     * so listeners are only notified when it changes.
+     *
+     * @param direction the direction to which the player is moved
+     */
+    void makeMove(Direction direction) {
+        state.makeMove(direction);
+        for (var i = 0; i < positions.length; i++) {
+            positions[i].set(state.getPosition(i));
+        }
+        solved.set(state.isSolved());
+    }
+
+    @Override
+    public String toString() {
+        return state.toString();
+    }
+
+}
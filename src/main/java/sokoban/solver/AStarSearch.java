@@ -0,0 +1,150 @@
+package sokoban.solver;
+
+import sokoban.state.Direction;
+import sokoban.state.PackedState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+
+/**
+ * A* search over the moves of the player.
+ * With an admissible and consistent heuristic, like {@link AssignmentHeuristic},
+ * the first solved state taken from the open list is reached by a shortest sequence of moves.
+ */
+public class AStarSearch {
+
+    private final Heuristic heuristic;
+
+    private final DeadlockDetector deadlockDetector;
+
+    private final SearchMetrics metrics = new SearchMetrics("astar");
+
+    /**
+     * Creates an A* search guided by the {@link AssignmentHeuristic}.
+     */
+    public AStarSearch() {
+        this(new AssignmentHeuristic());
+    }
+
+    /**
+     * Creates an A* search guided by the specified heuristic.
+     *
+     * @param heuristic a heuristic that never overestimates the number of moves left
+     */
+    public AStarSearch(Heuristic heuristic) {
+        this(heuristic, new DeadlockDetector());
+    }
+
+    /**
+     * Creates an A* search guided by the specified heuristic.
+     *
+     * @param heuristic a heuristic that never overestimates the number of moves left
+     * @param deadlockDetector the detector used to prune deadlocked successors
+     */
+    public AStarSearch(Heuristic heuristic, DeadlockDetector deadlockDetector) {
+        this.heuristic = heuristic;
+        this.deadlockDetector = deadlockDetector;
+    }
+
+    /**
+     * Searches for a shortest solution starting from the specified state.
+     *
+     * @param initialState the state to start the search from
+     * @return the solution found, or an empty optional if the state cannot be solved
+     * @throws CancellationException if the calling thread is interrupted during the search
+     */
+    public Optional<Solution> solve(PackedState initialState) {
+        metrics.begin();
+        var solution = Optional.<Solution>empty();
+        try {
+            solution = search(initialState);
+            return solution;
+        } finally {
+            metrics.end(solution);
+        }
+    }
+
+    /**
+     * {@return the live counters of the search}
+     */
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    private Optional<Solution> search(PackedState initialState) {
+        var open = new PriorityQueue<Node>(Comparator
+                .comparingInt(Node::f)
+                .thenComparingInt(node -> -node.cost));
+        var bestCosts = new HashMap<PackedState, Integer>();
+        long expanded = 0;
+        long generated = 0;
+        long duplicates = 0;
+        var depth = 0;
+        // Successors are generated into the buffer and copied only when they are kept.
+        var successors = new PackedState[Direction.values().length];
+
+        var start = initialState.clone();
+        open.add(new Node(start, null, null, 0, heuristic.estimate(start)));
+        bestCosts.put(start, 0);
+
+        while (!open.isEmpty()) {
+            var node = open.poll();
+            if (node.cost > bestCosts.get(node.state)) {
+                continue;
+            }
+            if (node.state.isSolved()) {
+                return Optional.of(new Solution(node.path(), expanded, generated));
+            }
+            expanded++;
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("The search was interrupted.");
+            }
+            for (var moves = node.state.getSuccessors(successors); moves != 0; moves &= moves - 1) {
+                var direction = Direction.fromMask(moves);
+                var pushed = node.state.isPush(direction);
+                var child = successors[direction.ordinal()];
+                generated++;
+                if (pushed && deadlockDetector.isDeadlockAfterPush(child, direction)) {
+                    continue;
+                }
+                var cost = node.cost + 1;
+                var bestCost = bestCosts.get(child);
+                if (bestCost != null) {
+                    duplicates++;
+                }
+                if (bestCost == null || cost < bestCost) {
+                    child = child.clone();
+                    bestCosts.put(child, cost);
+                    open.add(new Node(child, node, direction, cost, heuristic.estimate(child)));
+                }
+            }
+            depth = Math.max(depth, node.cost + 1);
+            metrics.update(expanded, generated, duplicates, open.size(), bestCosts.size(), depth);
+        }
+        return Optional.empty();
+    }
+
+    private record Node(PackedState state, Node parent, Direction move, int cost, int estimate) {
+
+        int f() {
+            return cost + estimate;
+        }
+
+        List<Direction> path() {
+            var moves = new ArrayList<Direction>();
+            for (var node = this; node.parent != null; node = node.parent) {
+                moves.add(node.move);
+            }
+            Collections.reverse(moves);
+            return moves;
+        }
+
+    }
+
+}
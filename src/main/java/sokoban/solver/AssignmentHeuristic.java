@@ -0,0 +1,209 @@
+package sokoban.solver;
+
+import sokoban.state.Map;
+import sokoban.state.PackedState;
+import sokoban.state.Position;
+import sokoban.state.SokobanState;
+
+import java.util.Arrays;
+
+/**
+ * Lower bound based on the minimum-cost assignment of the boxes to the finish positions.
+ * Every box needs at least as many pushes as its distance to the finish position it ends
+ * up on, and every push is a move, so the cost of the cheapest assignment never
+ * overestimates the number of moves left.
+ * <p>
+ * On a board, the distance is the number of pushes around the walls taken from the
+ * {@linkplain Map#getPushDistance(int, int, int) tables of the board}, so filling the cost
+ * matrix is a few array reads per box and target. Given only the target positions, it is the
+ * Manhattan distance. The assignment itself takes O(n^3) time for n boxes and targets; the
+ * matrix and the work arrays are kept per thread, so an estimate allocates nothing.
+ */
+public class AssignmentHeuristic implements Heuristic {
+
+    private final Position[] targets;
+
+    private final Map board;
+
+    /**
+     * The cost of assigning a box to a target it can never be pushed to, larger than
+     * any push distance so such assignments are only taken when no other is possible.
+     */
+    private final int unreachableCost;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Creates a heuristic for the board of {@link SokobanState}.
+     */
+    public AssignmentHeuristic() {
+        this(SokobanState.board);
+    }
+
+    /**
+     * Creates a heuristic for the targets of the specified board.
+     *
+     * @param board the board of the game
+     */
+    public AssignmentHeuristic(Map board) {
+        this.targets = board.getTargets().toArray(Position[]::new);
+        this.board = board;
+        this.unreachableCost = board.height() * board.width();
+    }
+
+    /**
+     * Creates a heuristic for the specified target positions.
+     *
+     * @param targets the positions the boxes have to be pushed to
+     */
+    public AssignmentHeuristic(Position... targets) {
+        this.targets = targets.clone();
+        this.board = null;
+        this.unreachableCost = 0;
+    }
+
+    @Override
+    public int estimate(PackedState state) {
+        var boxes = state.getBoxCount();
+        var scratch = this.scratch.get().ensure(boxes, targets.length);
+        var cost = scratch.cost;
+        for (var i = 0; i < boxes; i++) {
+            var box = state.getPosition(i + 1);
+            for (var j = 0; j < targets.length; j++) {
+                cost[i * targets.length + j] = board == null
+                        ? Math.abs(box.row() - targets[j].row()) + Math.abs(box.col() - targets[j].col())
+                        : pushDistance(j, box);
+            }
+        }
+        return minimumCost(scratch, boxes, targets.length);
+    }
+
+    private int pushDistance(int target, Position box) {
+        var distance = board.getPushDistance(target, box.row(), box.col());
+        return distance == Map.UNREACHABLE ? unreachableCost : distance;
+    }
+
+    /**
+     * Computes the cost of the cheapest assignment of rows to distinct columns
+     * using the Hungarian algorithm.
+     *
+     * @param cost the cost matrix, it must not have more rows than columns
+     * @return the sum of the costs of the cheapest assignment
+     */
+    static int minimumCost(int[][] cost) {
+        var rows = cost.length;
+        var cols = rows == 0 ? 0 : cost[0].length;
+        var scratch = new Scratch().ensure(rows, cols);
+        for (var row = 0; row < rows; row++) {
+            System.arraycopy(cost[row], 0, scratch.cost, row * cols, cols);
+        }
+        return minimumCost(scratch, rows, cols);
+    }
+
+    /**
+     * Computes the cost of the cheapest assignment of the cost matrix held by the scratch,
+     * stored row after row, in O(rows^2 * cols) time.
+     */
+    private static int minimumCost(Scratch scratch, int rows, int cols) {
+        if (rows > cols) {
+            throw new IllegalArgumentException("There are more boxes than targets.");
+        }
+        var cost = scratch.cost;
+        // Potentials and matching are 1-based, column 0 is a virtual column.
+        var u = scratch.u;
+        var v = scratch.v;
+        var match = scratch.match;
+        var way = scratch.way;
+        var minValues = scratch.minValues;
+        var used = scratch.used;
+        Arrays.fill(u, 0, rows + 1, 0);
+        Arrays.fill(v, 0, cols + 1, 0);
+        Arrays.fill(match, 0, cols + 1, 0);
+        for (var row = 1; row <= rows; row++) {
+            match[0] = row;
+            var col0 = 0;
+            Arrays.fill(minValues, 0, cols + 1, Integer.MAX_VALUE);
+            Arrays.fill(used, 0, cols + 1, false);
+            do {
+                used[col0] = true;
+                var row0 = match[col0];
+                var delta = Integer.MAX_VALUE;
+                var col1 = 0;
+                for (var col = 1; col <= cols; col++) {
+                    if (!used[col]) {
+                        var current = cost[(row0 - 1) * cols + col - 1] - u[row0] - v[col];
+                        if (current < minValues[col]) {
+                            minValues[col] = current;
+                            way[col] = col0;
+                        }
+                        if (minValues[col] < delta) {
+                            delta = minValues[col];
+                            col1 = col;
+                        }
+                    }
+                }
+                for (var col = 0; col <= cols; col++) {
+                    if (used[col]) {
+                        u[match[col]] += delta;
+                        v[col] -= delta;
+                    } else {
+                        minValues[col] -= delta;
+                    }
+                }
+                col0 = col1;
+            } while (match[col0] != 0);
+            do {
+                var col1 = way[col0];
+                match[col0] = match[col1];
+                col0 = col1;
+            } while (col0 != 0);
+        }
+        var total = 0;
+        for (var col = 1; col <= cols; col++) {
+            if (match[col] != 0) {
+                total += cost[(match[col] - 1) * cols + col - 1];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * The cost matrix and the work arrays of the Hungarian algorithm for one thread, grown
+     * when a state has more boxes or targets than any before, so an estimate allocates nothing.
+     */
+    private static final class Scratch {
+
+        private int[] cost = new int[0];
+
+        private int[] u = new int[1];
+
+        private int[] v = new int[1];
+
+        private int[] match = new int[1];
+
+        private int[] way = new int[1];
+
+        private int[] minValues = new int[1];
+
+        private boolean[] used = new boolean[1];
+
+        private Scratch ensure(int rows, int cols) {
+            if (cost.length < rows * cols) {
+                cost = new int[rows * cols];
+            }
+            if (u.length < rows + 1) {
+                u = new int[rows + 1];
+            }
+            if (v.length < cols + 1) {
+                v = new int[cols + 1];
+                match = new int[cols + 1];
+                way = new int[cols + 1];
+                minValues = new int[cols + 1];
+                used = new boolean[cols + 1];
+            }
+            return this;
+        }
+
+    }
+
+}
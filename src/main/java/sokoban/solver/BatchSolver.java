@@ -0,0 +1,447 @@
+package sokoban.solver;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import sokoban.state.Direction;
+import sokoban.state.Level;
+import sokoban.state.PackedState;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves every level of a collection concurrently and reports the outcome of each one.
+ * <p>
+ * Every level is searched on a single thread of a fixed pool, so several levels are
+ * solved at the same time. A watchdog aborts a search once it runs longer than the time
+ * limit, or once it holds more states than the state limit. Since all the levels share the
+ * heap, the memory a level uses cannot be told apart from the others', so it is measured
+ * by the states its search holds at once, frontier and visited states together, which is
+ * what the memory of a search grows with; short-lived garbage does not count against it.
+ * Solutions are replayed before they are reported, so a report only lists solutions that
+ * really solve their levels.
+ */
+public class BatchSolver {
+
+    /**
+     * The algorithms that can be used, all of them searching on a single thread.
+     */
+    public static final List<String> ALGORITHMS = List.of("astar", "idastar", "push", "compact-bfs");
+
+    private static final long WATCHDOG_PERIOD_MILLIS = 10;
+
+    private static final int CACHE_CAPACITY = 10_000;
+
+    private final String algorithm;
+
+    private final int threads;
+
+    private final Duration timeLimit;
+
+    private final long stateLimit;
+
+    private final SolutionCache cache;
+
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    private final ConcurrentHashMap<Run, Boolean> running = new ConcurrentHashMap<>();
+
+    /**
+     * The outcome of solving a level.
+     */
+    public enum Status {
+        /** A solution was found. */
+        SOLVED,
+        /** The whole search space was explored without finding a solution. */
+        UNSOLVABLE,
+        /** The search was aborted after running out of time. */
+        TIME_LIMIT,
+        /** The search was aborted after holding more states than the limit, or running out of heap. */
+        MEMORY_LIMIT,
+        /** The search failed with an error. */
+        FAILED
+    }
+
+    /**
+     * The result of solving a single level.
+     *
+     * @param number the 1-based number of the level in the collection
+     * @param name the name of the level
+     * @param status the outcome of the search
+     * @param moves the number of moves of the solution, or {@code null} if none was found
+     * @param pushes the number of pushes of the solution, or {@code null} if none was found
+     * @param expanded the number of states expanded, or {@code null} if the search was aborted
+     * @param generated the number of states generated, or {@code null} if the search was aborted
+     * @param wallTimeMillis the time spent on the level, in milliseconds
+     * @param peakStates the most states the search held at once, frontier and visited states together
+     * @param allocatedBytes the bytes allocated by the search, garbage included, or -1 if the JVM cannot
+     *                       measure them
+     * @param solution the solution in LURD notation, with pushes in upper case, or {@code null}
+     * @param error the message of the error a failed search ended with, or {@code null}
+     */
+    public record LevelResult(int number, String name, Status status, Integer moves, Integer pushes,
+                              Long expanded, Long generated, long wallTimeMillis, long peakStates,
+                              long allocatedBytes, String solution, String error) {
+    }
+
+    /**
+     * The report of a whole batch.
+     *
+     * @param algorithm the algorithm used
+     * @param threads the number of levels solved at the same time
+     * @param timeLimitMillis the time limit per level, in milliseconds
+     * @param stateLimit the number of states the search of a level may hold at once
+     * @param wallTimeMillis the time spent on the whole batch, in milliseconds
+     * @param peakHeapBytes the peak heap usage of the JVM during the batch, in bytes
+     * @param solved the number of levels solved
+     * @param levels the results of the levels, in the order of the collection
+     */
+    public record Report(String algorithm, int threads, long timeLimitMillis, long stateLimit,
+                         long wallTimeMillis, long peakHeapBytes, int solved, List<LevelResult> levels) {
+    }
+
+    /**
+     * Creates a batch solver.
+     *
+     * @param algorithm one of the {@link #ALGORITHMS}
+     * @param threads the number of levels solved at the same time
+     * @param timeLimit the time a single level may take
+     * @param stateLimit the number of states the search of a single level may hold at once
+     * @throws IllegalArgumentException if the algorithm is unknown or a limit is not positive
+     */
+    public BatchSolver(String algorithm, int threads, Duration timeLimit, long stateLimit) {
+        this(algorithm, threads, timeLimit, stateLimit, null);
+    }
+
+    /**
+     * Creates a batch solver looking up solutions in a cache before searching.
+     * Levels answered by the cache are reported with no expanded nor generated states.
+     *
+     * @param algorithm one of the {@link #ALGORITHMS}
+     * @param threads the number of levels solved at the same time
+     * @param timeLimit the time a single level may take
+     * @param stateLimit the number of states the search of a single level may hold at once
+     * @param cache the cache of solutions, or {@code null} to always search
+     * @throws IllegalArgumentException if the algorithm is unknown or a limit is not positive
+     */
+    public BatchSolver(String algorithm, int threads, Duration timeLimit, long stateLimit, SolutionCache cache) {
+        if (!ALGORITHMS.contains(algorithm)) {
+            throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is required.");
+        }
+        if (timeLimit.isNegative() || timeLimit.isZero() || stateLimit < 1) {
+            throw new IllegalArgumentException("The limits must be positive.");
+        }
+        this.algorithm = algorithm;
+        this.threads = threads;
+        this.timeLimit = timeLimit;
+        this.stateLimit = stateLimit;
+        this.cache = cache;
+        var bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.threadBean = bean.isThreadAllocatedMemorySupported() ? bean : null;
+        if (threadBean != null) {
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    /**
+     * Solves every level given.
+     *
+     * @param levels the levels to be solved
+     * @return the report of the batch
+     */
+    public Report solveAll(List<Level> levels) {
+        var heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(pool -> pool.resetPeakUsage());
+        var start = System.nanoTime();
+
+        var pool = Executors.newFixedThreadPool(threads);
+        var watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "batch-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var results = new ArrayList<LevelResult>();
+        try {
+            watchdog.scheduleAtFixedRate(this::checkLimits, WATCHDOG_PERIOD_MILLIS, WATCHDOG_PERIOD_MILLIS,
+                    TimeUnit.MILLISECONDS);
+            var futures = new ArrayList<Future<LevelResult>>();
+            for (var i = 0; i < levels.size(); i++) {
+                var number = i + 1;
+                var level = levels.get(i);
+                futures.add(pool.submit(() -> solve(number, level)));
+            }
+            for (var future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("The batch was interrupted.");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            watchdog.shutdownNow();
+        }
+
+        var peakHeap = heapPools.stream().mapToLong(heapPool -> heapPool.getPeakUsage().getUsed()).sum();
+        var solved = (int) results.stream().filter(result -> result.status() == Status.SOLVED).count();
+        return new Report(algorithm, threads, timeLimit.toMillis(), stateLimit,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), peakHeap, solved, results);
+    }
+
+    private LevelResult solve(int number, Level level) {
+        var run = new Run(Thread.currentThread());
+        running.put(run, Boolean.TRUE);
+        Optional<Solution> solution = Optional.empty();
+        Status status;
+        String error = null;
+        var initialState = PackedState.of(level.createState());
+        try {
+            solution = cache == null
+                    ? search(run, level, initialState)
+                    : cache.solve(initialState, objective(), state -> search(run, level, state));
+            status = solution.isPresent() ? Status.SOLVED : Status.UNSOLVABLE;
+        } catch (CancellationException e) {
+            status = run.abortedBy != null ? run.abortedBy : Status.FAILED;
+        } catch (OutOfMemoryError e) {
+            status = Status.MEMORY_LIMIT;
+        } catch (RuntimeException e) {
+            status = Status.FAILED;
+            error = e.toString();
+        } finally {
+            run.finish();
+            running.remove(run);
+            Thread.interrupted();
+        }
+
+        var wallTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - run.start);
+        var peakStates = run.peakStates;
+        var allocated = run.allocated();
+        if (solution.isEmpty()) {
+            return new LevelResult(number, level.name(), status, null, null, null, null, wallTime, peakStates,
+                    allocated, null, error);
+        }
+        var moves = solution.get().moves();
+        var lurd = new StringBuilder();
+        var pushes = 0;
+        var state = initialState.clone();
+        for (var direction : moves) {
+            if (!state.isLegalMove(direction)) {
+                return new LevelResult(number, level.name(), Status.FAILED, null, null, null, null, wallTime,
+                        peakStates, allocated, null, "Illegal move in solution: " + direction);
+            }
+            var pushed = state.isPush(direction);
+            lurd.append(pushed ? Character.toUpperCase(letterOf(direction)) : letterOf(direction));
+            pushes += pushed ? 1 : 0;
+            state.makeMove(direction);
+        }
+        if (!state.isSolved()) {
+            return new LevelResult(number, level.name(), Status.FAILED, null, null, null, null, wallTime,
+                    peakStates, allocated, null, "The solution does not solve the level.");
+        }
+        return new LevelResult(number, level.name(), Status.SOLVED, moves.size(), pushes,
+                solution.get().expanded(), solution.get().generated(), wallTime, peakStates, allocated,
+                lurd.toString(), null);
+    }
+
+    private Optional<Solution> search(Run run, Level level, PackedState initialState) {
+        var deadlockDetector = new DeadlockDetector(level.board());
+        return switch (algorithm) {
+            case "astar" -> {
+                var search = new AStarSearch(new AssignmentHeuristic(level.board()), deadlockDetector);
+                run.metrics = search.getMetrics();
+                yield search.solve(initialState);
+            }
+            case "idastar" -> {
+                var search = new IdaStarSearch(new AssignmentHeuristic(level.board()),
+                        IdaStarSearch.DEFAULT_TABLE_SIZE, deadlockDetector);
+                run.metrics = search.getMetrics();
+                yield search.solve(initialState);
+            }
+            case "push" -> {
+                var search = new PushSearch(deadlockDetector);
+                run.metrics = search.getMetrics();
+                yield search.solve(initialState);
+            }
+            case "compact-bfs" -> {
+                var search = new CompactBreadthFirstSearch(deadlockDetector, false);
+                run.metrics = search.getMetrics();
+                yield search.solve(initialState);
+            }
+            default -> throw new IllegalStateException("Unknown algorithm: " + algorithm);
+        };
+    }
+
+    private SolutionCache.Objective objective() {
+        return algorithm.equals("push") ? SolutionCache.Objective.PUSHES : SolutionCache.Objective.MOVES;
+    }
+
+    private void checkLimits() {
+        var now = System.nanoTime();
+        for (var run : running.keySet()) {
+            if (now - run.start > timeLimit.toNanos()) {
+                run.abort(Status.TIME_LIMIT);
+            } else if (run.sampleStates() > stateLimit) {
+                run.abort(Status.MEMORY_LIMIT);
+            }
+        }
+    }
+
+    private static char letterOf(Direction direction) {
+        return switch (direction) {
+            case UP -> 'u';
+            case RIGHT -> 'r';
+            case DOWN -> 'd';
+            case LEFT -> 'l';
+        };
+    }
+
+    /**
+     * The search of a level in progress on a thread of the pool.
+     */
+    private final class Run {
+
+        private final Thread thread;
+
+        private final long start = System.nanoTime();
+
+        private final long startAllocated;
+
+        private long endAllocated = -1;
+
+        private boolean finished;
+
+        private volatile Status abortedBy;
+
+        /**
+         * The counters of the search, once it has been created.
+         */
+        private volatile SearchMetrics metrics;
+
+        /**
+         * The most states the search was seen holding, sampled by the watchdog and at the end.
+         */
+        private volatile long peakStates;
+
+        private Run(Thread thread) {
+            this.thread = thread;
+            this.startAllocated = allocatedBy(thread);
+        }
+
+        /**
+         * Interrupts the search, unless it is over, so that a later search on the same thread is not hit.
+         */
+        private synchronized void abort(Status status) {
+            if (!finished && abortedBy == null) {
+                abortedBy = status;
+                thread.interrupt();
+            }
+        }
+
+        private synchronized void finish() {
+            finished = true;
+            endAllocated = allocatedBy(thread);
+            sampleStates();
+        }
+
+        /**
+         * Reads the states the search holds at the moment and keeps the peak.
+         *
+         * @return the number of states held, frontier and visited states together
+         */
+        private synchronized long sampleStates() {
+            var current = metrics;
+            if (current == null) {
+                return 0;
+            }
+            var states = current.getFrontierSize() + current.getVisitedSize();
+            peakStates = Math.max(peakStates, states);
+            return states;
+        }
+
+        private synchronized long allocated() {
+            if (threadBean == null) {
+                return -1;
+            }
+            return (finished ? endAllocated : allocatedBy(thread)) - startAllocated;
+        }
+
+        private long allocatedBy(Thread thread) {
+            return threadBean == null ? -1 : threadBean.getThreadAllocatedBytes(thread.threadId());
+        }
+
+    }
+
+    /**
+     * Solves a level collection and writes the report as JSON.
+     * <p>
+     * Usage: {@code BatchSolver <level file> [--algorithm name] [--threads n] [--time-limit seconds]
+     * [--state-limit states] [--report file] [--cache directory]}. The report is printed to the
+     * standard output unless a file is given.
+     *
+     * @param args the command-line arguments
+     * @throws IOException if the levels cannot be read or the report cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("A level file is required.");
+        }
+        var algorithm = "push";
+        var threads = Runtime.getRuntime().availableProcessors();
+        var timeLimit = Duration.ofSeconds(60);
+        var stateLimit = Long.MAX_VALUE;
+        Path report = null;
+        SolutionCache cache = null;
+        for (var i = 1; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for option " + args[i]);
+            }
+            var value = args[i + 1];
+            switch (args[i]) {
+                case "--algorithm" -> algorithm = value;
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--time-limit" -> timeLimit = Duration.ofMillis((long) (Double.parseDouble(value) * 1000));
+                case "--state-limit" -> stateLimit = Long.parseLong(value);
+                case "--report" -> report = Path.of(value);
+                case "--cache" -> cache = new SolutionCache(Path.of(value), CACHE_CAPACITY);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        var levels = Level.load(Path.of(args[0]));
+        var result = new BatchSolver(algorithm, threads, timeLimit, stateLimit, cache).solveAll(levels);
+        var writer = new ObjectMapper()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writer();
+        if (report == null) {
+            System.out.println(writer.writeValueAsString(result));
+        } else {
+            writer.writeValue(report.toFile(), result);
+            System.out.printf("Solved %d of %d levels in %d ms, report written to %s%n",
+                    result.solved(), levels.size(), result.wallTimeMillis(), report);
+        }
+        if (cache != null) {
+            System.out.println("Cache: " + cache);
+        }
+    }
+
+}
@@ -0,0 +1,379 @@
+package sokoban.solver;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import sokoban.state.Level;
+import sokoban.state.PackedState;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the solvers against a fixed corpus of levels and reports how each of them did,
+ * so that the reports of two builds can be compared.
+ * <p>
+ * The corpus is a directory holding an XSB file per tier, {@code easy.xsb}, {@code medium.xsb}
+ * and {@code hard.xsb}, the one checked in being {@code src/test/resources/corpus}. Every
+ * solver is run on every level one at a time, after a warm-up on the built-in level, and the
+ * fastest of several repetitions is reported: the time to solve, the nodes expanded per second,
+ * the peak heap usage and whether the solution has the fewest moves found by any solver
+ * guaranteed to find the fewest. The report leaves out anything specific to the run, such as
+ * dates, so that reports differ only where the results do.
+ */
+public class BenchmarkSuite {
+
+    /**
+     * The tiers of the corpus, in the order they are run.
+     */
+    public static final List<String> TIERS = List.of("easy", "medium", "hard");
+
+    /**
+     * The solvers that can be benchmarked.
+     */
+    public static final List<String> ALGORITHMS = List.of("astar", "idastar", "push", "compact-bfs",
+            "parallel-bfs", "bidirectional", "external-bfs");
+
+    private static final Set<String> MOVE_OPTIMAL = Set.of("astar", "idastar", "compact-bfs",
+            "parallel-bfs", "bidirectional", "external-bfs");
+
+    private final List<String> algorithms;
+
+    private final int repetitions;
+
+    private final Duration timeLimit;
+
+    private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .toList();
+
+    /**
+     * The fastest run of a solver on a level, or the first one that did not solve it.
+     *
+     * @param algorithm the solver
+     * @param status the outcome of the search
+     * @param moves the number of moves of the solution, or {@code null} if none was found
+     * @param pushes the number of pushes of the solution, or {@code null} if none was found
+     * @param optimal whether the solution has the fewest moves known, or {@code null} if that is not known
+     * @param expanded the number of states expanded, or {@code null} if no search was completed
+     * @param timeMillis the time to solve the level, in milliseconds
+     * @param nodesPerSecond the number of states expanded per second, or {@code null} if no search was completed
+     * @param peakHeapBytes the sum of the peak usages of the heap memory pools during the search
+     */
+    public record Run(String algorithm, BatchSolver.Status status, Integer moves, Integer pushes, Boolean optimal,
+                      Long expanded, double timeMillis, Long nodesPerSecond, long peakHeapBytes) {
+    }
+
+    /**
+     * The runs of every solver on a level.
+     *
+     * @param tier the tier of the level
+     * @param name the name of the level
+     * @param boxes the number of boxes of the level
+     * @param optimalMoves the fewest moves found by a solver that guarantees them, or {@code null}
+     * @param runs the runs of the solvers
+     */
+    public record LevelReport(String tier, String name, int boxes, Integer optimalMoves, List<Run> runs) {
+    }
+
+    /**
+     * The totals of a solver over the corpus.
+     *
+     * @param algorithm the solver
+     * @param solved the number of levels solved
+     * @param optimal the number of levels solved with the fewest moves known
+     * @param timeMillis the total time to solve the levels solved, in milliseconds
+     * @param nodesPerSecond the number of states expanded per second over the levels solved
+     */
+    public record Summary(String algorithm, int solved, int optimal, double timeMillis, long nodesPerSecond) {
+    }
+
+    /**
+     * The report of the suite.
+     *
+     * @param javaVersion the version of the Java runtime
+     * @param processors the number of available processors
+     * @param maxHeapBytes the maximum size of the heap
+     * @param repetitions the number of times every solver was run on every level
+     * @param timeLimitMillis the time limit of a single run, in milliseconds
+     * @param summary the totals of every solver
+     * @param levels the reports of the levels, tier by tier
+     */
+    public record Report(String javaVersion, int processors, long maxHeapBytes, int repetitions,
+                         long timeLimitMillis, List<Summary> summary, List<LevelReport> levels) {
+    }
+
+    /**
+     * Creates a benchmark suite.
+     *
+     * @param algorithms the solvers to be run, each one of the {@link #ALGORITHMS}
+     * @param repetitions the number of times every solver is run on every level
+     * @param timeLimit the time a single run may take
+     * @throws IllegalArgumentException if a solver is unknown or the repetitions or the time limit are not positive
+     */
+    public BenchmarkSuite(List<String> algorithms, int repetitions, Duration timeLimit) {
+        for (var algorithm : algorithms) {
+            if (!ALGORITHMS.contains(algorithm)) {
+                throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+            }
+        }
+        if (repetitions < 1 || timeLimit.isNegative() || timeLimit.isZero()) {
+            throw new IllegalArgumentException("The repetitions and the time limit must be positive.");
+        }
+        this.algorithms = List.copyOf(algorithms);
+        this.repetitions = repetitions;
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * Reads the tiers of a corpus.
+     *
+     * @param directory the directory of the corpus
+     * @param tiers the tiers to be read
+     * @return the levels of every tier, in the order of the tiers given
+     * @throws IOException if a tier cannot be read
+     */
+    public static LinkedHashMap<String, List<Level>> loadCorpus(Path directory, List<String> tiers) throws IOException {
+        var corpus = new LinkedHashMap<String, List<Level>>();
+        for (var tier : tiers) {
+            corpus.put(tier, Level.load(directory.resolve(tier + ".xsb")));
+        }
+        return corpus;
+    }
+
+    /**
+     * Runs every solver on every level of a corpus.
+     *
+     * @param corpus the levels of every tier
+     * @return the report of the suite
+     */
+    public Report run(LinkedHashMap<String, List<Level>> corpus) {
+        var executor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "benchmark");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (var algorithm : algorithms) {
+                runOnce(executor, algorithm, Level.builtIn());
+            }
+            var levels = new ArrayList<LevelReport>();
+            for (var tier : corpus.entrySet()) {
+                for (var level : tier.getValue()) {
+                    levels.add(runLevel(executor, tier.getKey(), level));
+                }
+            }
+            return new Report(System.getProperty("java.version"), Runtime.getRuntime().availableProcessors(),
+                    Runtime.getRuntime().maxMemory(), repetitions, timeLimit.toMillis(), summarize(levels), levels);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private LevelReport runLevel(ExecutorService executor, String tier, Level level) {
+        var runs = new ArrayList<Run>();
+        for (var algorithm : algorithms) {
+            Run best = null;
+            for (var i = 0; i < repetitions; i++) {
+                var run = runOnce(executor, algorithm, level);
+                if (run.status() != BatchSolver.Status.SOLVED) {
+                    best = run;
+                    break;
+                }
+                // Keep the fastest run whole, so that its figures all come from the same search.
+                if (best == null || run.timeMillis() < best.timeMillis()) {
+                    best = run;
+                }
+            }
+            runs.add(best);
+        }
+
+        var optimalMoves = runs.stream()
+                .filter(run -> run.moves() != null && MOVE_OPTIMAL.contains(run.algorithm()))
+                .mapToInt(Run::moves)
+                .min();
+        var reports = runs.stream()
+                .map(run -> new Run(run.algorithm(), run.status(), run.moves(), run.pushes(),
+                        run.moves() != null && optimalMoves.isPresent() ? run.moves() == optimalMoves.getAsInt() : null,
+                        run.expanded(), run.timeMillis(), run.nodesPerSecond(), run.peakHeapBytes()))
+                .toList();
+        return new LevelReport(tier, level.name(), level.getBoxCount(),
+                optimalMoves.isPresent() ? optimalMoves.getAsInt() : null, reports);
+    }
+
+    private Run runOnce(ExecutorService executor, String algorithm, Level level) {
+        var initialState = PackedState.of(level.createState());
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        var start = System.nanoTime();
+        var future = executor.submit(() -> search(algorithm, level, initialState));
+        Optional<Solution> solution;
+        BatchSolver.Status status;
+        try {
+            solution = future.get(timeLimit.toNanos(), TimeUnit.NANOSECONDS);
+            status = solution.isPresent() ? BatchSolver.Status.SOLVED : BatchSolver.Status.UNSOLVABLE;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            solution = Optional.empty();
+            status = BatchSolver.Status.TIME_LIMIT;
+        } catch (ExecutionException | CancellationException e) {
+            solution = Optional.empty();
+            status = e.getCause() instanceof OutOfMemoryError
+                    ? BatchSolver.Status.MEMORY_LIMIT
+                    : BatchSolver.Status.FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("The benchmark was interrupted.");
+        }
+        var nanos = System.nanoTime() - start;
+        // Wait for a cancelled search to stop before the next one is measured.
+        awaitIdle(executor);
+        var peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        var timeMillis = Math.round(nanos / 1e3) / 1e3;
+
+        if (solution.isEmpty()) {
+            return new Run(algorithm, status, null, null, null, null, timeMillis, null, peakHeap);
+        }
+        var state = initialState.clone();
+        var pushes = 0;
+        for (var direction : solution.get().moves()) {
+            if (!state.isLegalMove(direction)) {
+                return new Run(algorithm, BatchSolver.Status.FAILED, null, null, null, null, timeMillis, null,
+                        peakHeap);
+            }
+            pushes += state.isPush(direction) ? 1 : 0;
+            state.makeMove(direction);
+        }
+        if (!state.isSolved()) {
+            return new Run(algorithm, BatchSolver.Status.FAILED, null, null, null, null, timeMillis, null, peakHeap);
+        }
+        var expanded = solution.get().expanded();
+        return new Run(algorithm, status, solution.get().length(), pushes, null, expanded, timeMillis,
+                Math.round(expanded * 1e9 / nanos), peakHeap);
+    }
+
+    private static void awaitIdle(ExecutorService executor) {
+        try {
+            executor.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("The benchmark was interrupted.");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Optional<Solution> search(String algorithm, Level level, PackedState initialState) {
+        var deadlockDetector = new DeadlockDetector(level.board());
+        return switch (algorithm) {
+            case "astar" -> new AStarSearch(new AssignmentHeuristic(level.board()), deadlockDetector)
+                    .solve(initialState);
+            case "idastar" -> new IdaStarSearch(new AssignmentHeuristic(level.board()),
+                    IdaStarSearch.DEFAULT_TABLE_SIZE, deadlockDetector).solve(initialState);
+            case "push" -> new PushSearch(deadlockDetector).solve(initialState);
+            case "compact-bfs" -> new CompactBreadthFirstSearch(deadlockDetector, false).solve(initialState);
+            case "parallel-bfs" -> new ParallelBreadthFirstSearch(Runtime.getRuntime().availableProcessors(),
+                    deadlockDetector).solve(initialState);
+            case "bidirectional" -> new BidirectionalSearch(level.board()).solve(initialState);
+            case "external-bfs" -> new ExternalBreadthFirstSearch(Path.of(System.getProperty("java.io.tmpdir")),
+                    ExternalBreadthFirstSearch.DEFAULT_RUN_SIZE, deadlockDetector).solve(initialState);
+            default -> throw new IllegalStateException("Unknown algorithm: " + algorithm);
+        };
+    }
+
+    private List<Summary> summarize(List<LevelReport> levels) {
+        var summary = new ArrayList<Summary>();
+        for (var algorithm : algorithms) {
+            var solved = 0;
+            var optimal = 0;
+            var timeMillis = 0.0;
+            var expanded = 0L;
+            for (var level : levels) {
+                for (var run : level.runs()) {
+                    if (run.algorithm().equals(algorithm) && run.status() == BatchSolver.Status.SOLVED) {
+                        solved++;
+                        optimal += Boolean.TRUE.equals(run.optimal()) ? 1 : 0;
+                        timeMillis += run.timeMillis();
+                        expanded += run.expanded();
+                    }
+                }
+            }
+            summary.add(new Summary(algorithm, solved, optimal, Math.round(timeMillis * 1e3) / 1e3,
+                    timeMillis == 0 ? 0 : Math.round(expanded * 1e3 / timeMillis)));
+        }
+        return summary;
+    }
+
+    /**
+     * Runs the suite and writes the report as JSON.
+     * <p>
+     * Usage: {@code BenchmarkSuite <corpus directory> [--algorithms a,b,...] [--tiers easy,...]
+     * [--repetitions n] [--time-limit seconds] [--report file]}. The corpus checked in is
+     * {@code src/test/resources/corpus}, and the report is printed to the standard output unless
+     * a file is given.
+     *
+     * @param args the command-line arguments
+     * @throws IOException if the corpus cannot be read or the report cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args[0].startsWith("--")) {
+            throw new IllegalArgumentException("A corpus directory is required.");
+        }
+        var directory = Path.of(args[0]);
+        var algorithms = ALGORITHMS;
+        var tiers = TIERS;
+        var repetitions = 3;
+        var timeLimit = Duration.ofSeconds(60);
+        Path report = null;
+        for (var i = 1; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for option " + args[i]);
+            }
+            var value = args[i + 1];
+            switch (args[i]) {
+                case "--algorithms" -> algorithms = Arrays.asList(value.split(","));
+                case "--tiers" -> tiers = Arrays.asList(value.split(","));
+                case "--repetitions" -> repetitions = Integer.parseInt(value);
+                case "--time-limit" -> timeLimit = Duration.ofMillis((long) (Double.parseDouble(value) * 1000));
+                case "--report" -> report = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("No corpus in " + directory);
+        }
+
+        var result = new BenchmarkSuite(algorithms, repetitions, timeLimit).run(loadCorpus(directory, tiers));
+        var writer = new ObjectMapper()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writer();
+        if (report == null) {
+            System.out.println(writer.writeValueAsString(result));
+        } else {
+            writer.writeValue(report.toFile(), result);
+            for (var summary : result.summary()) {
+                System.out.printf("%-14s %3d solved %3d optimal %12.1f ms %12d nodes/sec%n", summary.algorithm(),
+                        summary.solved(), summary.optimal(), summary.timeMillis(), summary.nodesPerSecond());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,240 @@
+package sokoban.solver;
+
+import sokoban.state.Direction;
+import sokoban.state.Map;
+import sokoban.state.PackedState;
+import sokoban.state.Position;
+import sokoban.state.SokobanState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Bidirectional breadth-first search.
+ * The forward search makes ordinary moves from the initial state, while the backward
+ * search takes moves back, pulling boxes instead of pushing them, from every goal
+ * state: the boxes on {@link SokobanState#finishPositions} and the player on any free
+ * square. The side with the smaller frontier is expanded one whole layer at a time,
+ * and the search stops after the layer in which the two sides first meet, which
+ * yields a shortest solution.
+ */
+public class BidirectionalSearch {
+
+    private final Map board;
+
+    private final Position[] targets;
+
+    private final SearchMetrics metrics = new SearchMetrics("bidirectional");
+
+    /**
+     * Creates a search for the board and the finish positions of {@link SokobanState}.
+     */
+    public BidirectionalSearch() {
+        this(SokobanState.board, SokobanState.finishPositions);
+    }
+
+    /**
+     * Creates a search for the specified board and its targets.
+     *
+     * @param board the board of the game
+     */
+    public BidirectionalSearch(Map board) {
+        this(board, board.getTargets().toArray(Position[]::new));
+    }
+
+    /**
+     * Creates a search for the specified board and target positions.
+     *
+     * @param board the board of the game
+     * @param targets the positions the boxes have to be pushed to
+     */
+    public BidirectionalSearch(Map board, Position... targets) {
+        this.board = board;
+        this.targets = targets.clone();
+    }
+
+    /**
+     * Searches for a shortest solution starting from the specified state.
+     *
+     * @param initialState the state to start the search from
+     * @return the solution found, or an empty optional if the state cannot be solved
+     * @throws CancellationException if the calling thread is interrupted during the search
+     */
+    public Optional<Solution> solve(PackedState initialState) {
+        metrics.begin();
+        var solution = Optional.<Solution>empty();
+        try {
+            solution = search(initialState);
+            return solution;
+        } finally {
+            metrics.end(solution);
+        }
+    }
+
+    /**
+     * {@return the live counters of the search}
+     */
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    private Optional<Solution> search(PackedState initialState) {
+        var start = initialState.clone();
+        if (start.isSolved()) {
+            return Optional.of(new Solution(List.of(), 0, 0));
+        }
+
+        var forward = new Side();
+        forward.add(start, null, null);
+        var backward = new Side();
+        for (var goal : goalStates(start)) {
+            backward.add(goal, null, null);
+        }
+
+        PackedState meeting = null;
+        long expanded = 0;
+        long generated = 0;
+        long duplicates = 0;
+        var depth = 0;
+        while (meeting == null && !forward.frontier.isEmpty() && !backward.frontier.isEmpty()) {
+            var expandForward = forward.frontier.size() <= backward.frontier.size();
+            var side = expandForward ? forward : backward;
+            var other = expandForward ? backward : forward;
+            var layer = side.frontier;
+            side.frontier = new ArrayList<>();
+            depth++;
+            var remaining = layer.size();
+            for (var state : layer) {
+                expanded++;
+                remaining--;
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("The search was interrupted.");
+                }
+                for (var step : expandForward ? successors(state) : predecessors(state)) {
+                    generated++;
+                    if (!side.add(step.state(), state, step.move())) {
+                        duplicates++;
+                    } else if (meeting == null && other.links.containsKey(step.state())) {
+                        meeting = step.state();
+                    }
+                }
+                metrics.update(expanded, generated, duplicates, remaining + side.frontier.size() + other.frontier.size(),
+                        forward.links.size() + backward.links.size(), depth);
+            }
+        }
+        if (meeting == null) {
+            return Optional.empty();
+        }
+
+        var moves = forward.pathTo(meeting);
+        Collections.reverse(moves);
+        moves.addAll(backward.pathTo(meeting));
+        return Optional.of(new Solution(moves, expanded, generated));
+    }
+
+    private static List<Link> successors(PackedState state) {
+        var steps = new ArrayList<Link>();
+        for (var moves = state.getLegalMoveMask(); moves != 0; moves &= moves - 1) {
+            var direction = Direction.fromMask(moves);
+            var next = state.clone();
+            next.makeMove(direction);
+            steps.add(new Link(next, direction));
+        }
+        return steps;
+    }
+
+    private static List<Link> predecessors(PackedState state) {
+        var steps = new ArrayList<Link>();
+        for (var direction : Direction.values()) {
+            for (var pushed : new boolean[]{false, true}) {
+                if (state.canUndoMove(direction, pushed)) {
+                    var previous = state.clone();
+                    previous.undoMove(direction, pushed);
+                    steps.add(new Link(previous, direction));
+                }
+            }
+        }
+        return steps;
+    }
+
+    private List<PackedState> goalStates(PackedState start) {
+        var goals = new ArrayList<PackedState>();
+        var positions = new Position[start.getBoxCount() + 1];
+        // The boxes are kept sorted, so only which targets are covered matters, not by which box.
+        for (var choice : combinations(targets.length, start.getBoxCount())) {
+            for (var i = 0; i < start.getBoxCount(); i++) {
+                positions[i + 1] = targets[choice[i]];
+            }
+            var boxes = Arrays.asList(positions).subList(1, positions.length);
+            for (var row = 0; row < board.height(); row++) {
+                for (var col = 0; col < board.width(); col++) {
+                    var value = board.getPosition(row, col);
+                    var player = new Position(row, col);
+                    if (value != SokobanState.WALL && value != SokobanState.OUT_OF_BOARD && !boxes.contains(player)) {
+                        positions[0] = player;
+                        goals.add(start.withPositions(positions));
+                    }
+                }
+            }
+        }
+        return goals;
+    }
+
+    private static List<int[]> combinations(int n, int k) {
+        var result = new ArrayList<int[]>();
+        choose(n, new int[k], 0, 0, result);
+        return result;
+    }
+
+    private static void choose(int n, int[] current, int index, int first, List<int[]> result) {
+        if (index == current.length) {
+            result.add(current.clone());
+            return;
+        }
+        for (var i = first; i < n; i++) {
+            current[index] = i;
+            choose(n, current, index + 1, i + 1, result);
+        }
+    }
+
+    /**
+     * A state paired with a move: the state a visited state was reached from, or a
+     * successor together with the move producing it. The move is always a forward move.
+     */
+    private record Link(PackedState state, Direction move) {
+    }
+
+    /**
+     * One direction of the search: the states visited, each linked to the state it was
+     * reached from together with the move connecting them, and the current frontier.
+     */
+    private static final class Side {
+
+        private final HashMap<PackedState, Link> links = new HashMap<>();
+
+        private List<PackedState> frontier = new ArrayList<>();
+
+        private boolean add(PackedState state, PackedState from, Direction move) {
+            if (links.putIfAbsent(state, new Link(from, move)) != null) {
+                return false;
+            }
+            frontier.add(state);
+            return true;
+        }
+
+        private List<Direction> pathTo(PackedState state) {
+            var moves = new ArrayList<Direction>();
+            for (var link = links.get(state); link.move() != null; link = links.get(link.state())) {
+                moves.add(link.move());
+            }
+            return moves;
+        }
+
+    }
+
+}
@@ -0,0 +1,178 @@
+package sokoban.solver;
+
+import sokoban.state.Direction;
+import sokoban.state.PackedState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Breadth-first search keeping nothing but packed words in memory.
+ * The visited states are stored in a {@link PackedStateSet}, tagged with the move that
+ * first reached them and whether it was a push, and the frontier is a plain array of
+ * words. The solution is rebuilt from the goal by taking back the tagged moves, so no
+ * parent links are stored at all.
+ */
+public class CompactBreadthFirstSearch {
+
+    private static final int PUSHED = 1 << 2;
+
+    private static final byte ROOT = (byte) 0x80;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final DeadlockDetector deadlockDetector;
+
+    private final boolean offHeap;
+
+    private PackedStateSet visited;
+
+    private final SearchMetrics metrics = new SearchMetrics("compact-bfs");
+
+    /**
+     * Creates a search storing the visited states on the heap.
+     */
+    public CompactBreadthFirstSearch() {
+        this(new DeadlockDetector(), false);
+    }
+
+    /**
+     * Creates a search.
+     *
+     * @param deadlockDetector the detector used to prune deadlocked successors
+     * @param offHeap whether the visited states are stored outside the heap
+     */
+    public CompactBreadthFirstSearch(DeadlockDetector deadlockDetector, boolean offHeap) {
+        this.deadlockDetector = deadlockDetector;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * {@return the visited states of the last search, for its statistics}
+     */
+    public Optional<PackedStateSet> getVisited() {
+        return Optional.ofNullable(visited);
+    }
+
+    /**
+     * {@return the live counters of the search}
+     */
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Searches for a shortest solution starting from the specified state.
+     *
+     * @param initialState the state to start the search from
+     * @return the solution found, or an empty optional if the state cannot be solved
+     * @throws CancellationException if the calling thread is interrupted during the search
+     */
+    public Optional<Solution> solve(PackedState initialState) {
+        metrics.begin();
+        var solution = Optional.<Solution>empty();
+        try {
+            solution = search(initialState);
+            return solution;
+        } finally {
+            metrics.end(solution);
+        }
+    }
+
+    private Optional<Solution> search(PackedState initialState) {
+        var start = initialState.clone();
+        if (start.isSolved()) {
+            return Optional.of(new Solution(List.of(), 0, 0));
+        }
+        visited = new PackedStateSet(start.getWordCount(), 1 << 12, offHeap);
+        visited.add(start, ROOT);
+        var layer = new Layer(start.getWordCount());
+        layer.add(start);
+        long expanded = 0;
+        long generated = 0;
+        long duplicates = 0;
+        var depth = 0;
+        // The set and the layers copy the words of the states, so the successors never escape the buffer.
+        var successors = new PackedState[Direction.values().length];
+        while (layer.size > 0) {
+            var next = new Layer(start.getWordCount());
+            depth++;
+            for (var i = 0; i < layer.size; i++) {
+                var state = layer.get(start, i);
+                expanded++;
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("The search was interrupted.");
+                }
+                for (var moves = state.getSuccessors(successors); moves != 0; moves &= moves - 1) {
+                    var direction = Direction.fromMask(moves);
+                    var pushed = state.isPush(direction);
+                    var child = successors[direction.ordinal()];
+                    generated++;
+                    if (pushed && deadlockDetector.isDeadlockAfterPush(child, direction)) {
+                        continue;
+                    }
+                    if (visited.add(child, (byte) (direction.ordinal() | (pushed ? PUSHED : 0)))) {
+                        if (child.isSolved()) {
+                            return Optional.of(new Solution(pathTo(child), expanded, generated));
+                        }
+                        next.add(child);
+                    } else {
+                        duplicates++;
+                    }
+                }
+                metrics.update(expanded, generated, duplicates, layer.size - i - 1 + next.size, visited.size(), depth);
+            }
+            layer = next;
+        }
+        return Optional.empty();
+    }
+
+    private List<Direction> pathTo(PackedState goal) {
+        var moves = new ArrayList<Direction>();
+        var state = goal.clone();
+        for (var tag = visited.getTag(state); tag != Byte.toUnsignedInt(ROOT); tag = visited.getTag(state)) {
+            var direction = DIRECTIONS[tag & ~PUSHED];
+            state.undoMove(direction, (tag & PUSHED) != 0);
+            moves.add(direction);
+        }
+        Collections.reverse(moves);
+        return moves;
+    }
+
+    /**
+     * The words of the states of a layer, one after the other.
+     */
+    private static final class Layer {
+
+        private final int words;
+
+        private long[] data;
+
+        private int size;
+
+        private Layer(int words) {
+            this.words = words;
+            data = new long[words * 16];
+        }
+
+        private void add(PackedState state) {
+            if ((size + 1) * words > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            for (var i = 0; i < words; i++) {
+                data[size * words + i] = state.getWord(i);
+            }
+            size++;
+        }
+
+        private PackedState get(PackedState template, int index) {
+            return template.withWords(Arrays.copyOfRange(data, index * words, (index + 1) * words));
+        }
+
+    }
+
+}
@@ -0,0 +1,339 @@
+package sokoban.solver;
+
+import sokoban.state.Direction;
+import sokoban.state.Map;
+import sokoban.state.PackedState;
+import sokoban.state.SokobanState;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detects deadlocks created by a push at run time, complementing the static
+ * {@linkplain Map#isDeadSquare(int, int) dead squares} of the board.
+ * <ul>
+ *     <li>A <em>freeze</em> deadlock is a box off target that can never move again,
+ *     because it is blocked both horizontally and vertically by walls, dead squares or
+ *     other frozen boxes.</li>
+ *     <li>A <em>closed corral</em> deadlock is an area the player cannot get into, fenced
+ *     by boxes none of which could be pushed even if every other box were removed, while
+ *     a fencing box is off target or a target inside the area is empty.</li>
+ * </ul>
+ * Both checks are sound: a state reported as deadlocked can never be solved.
+ * The number of states each check pruned is counted, the counters are thread-safe.
+ * <p>
+ * A check allocates nothing: every thread gets its own working arrays the first time it
+ * uses the detector, so one detector can be shared by the workers of a parallel search.
+ */
+public class DeadlockDetector {
+
+    private final Map board;
+
+    private final boolean[] floor;
+
+    private final boolean[] target;
+
+    private final boolean[] dead;
+
+    private final int[] offsets;
+
+    private final ThreadLocal<Scratch> scratch;
+
+    private final LongAdder checked = new LongAdder();
+
+    private final LongAdder frozenPruned = new LongAdder();
+
+    private final LongAdder corralPruned = new LongAdder();
+
+    /**
+     * Creates a detector for the board of {@link SokobanState}.
+     */
+    public DeadlockDetector() {
+        this(SokobanState.board);
+    }
+
+    /**
+     * Creates a detector for the specified board.
+     *
+     * @param board the board of the game
+     */
+    public DeadlockDetector(Map board) {
+        this.board = board;
+        var cells = board.cellCount();
+        floor = new boolean[cells];
+        target = new boolean[cells];
+        dead = new boolean[cells];
+        for (var cell = 0; cell < cells; cell++) {
+            floor[cell] = board.isFloor(cell);
+            target[cell] = board.isTarget(cell);
+            dead[cell] = board.isDeadSquare(cell);
+        }
+        offsets = new int[Direction.values().length];
+        for (var direction : Direction.values()) {
+            offsets[direction.ordinal()] = board.offset(direction);
+        }
+        scratch = ThreadLocal.withInitial(() -> new Scratch(cells));
+    }
+
+    /**
+     * Checks whether the push just made in the specified direction left the state deadlocked.
+     * The player is expected to stand where the pushed box was, as after
+     * {@link PackedState#makeMove(Direction)} or {@link PackedState#makePush(sokoban.state.Push)}.
+     *
+     * @param state the state after the push
+     * @param direction the direction of the push
+     * @return true if the state can no longer be solved
+     */
+    public boolean isDeadlockAfterPush(PackedState state, Direction direction) {
+        checked.increment();
+        var scratch = this.scratch.get();
+        scratch.reset();
+        var boxes = scratch.boxes;
+        var stamp = scratch.next();
+        for (var i = 1; i <= state.getBoxCount(); i++) {
+            boxes[cellOf(state, i)] = stamp;
+        }
+        var player = cellOf(state, SokobanState.PLAYER_POSITION);
+        var box = player + offsets[direction.ordinal()];
+        if (isFreezeDeadlock(scratch, stamp, box)) {
+            frozenPruned.increment();
+            return true;
+        }
+        if (isClosedCorralDeadlock(scratch, stamp, player, box)) {
+            corralPruned.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * {@return the number of states checked}
+     */
+    public long getChecked() {
+        return checked.sum();
+    }
+
+    /**
+     * {@return the number of states pruned because of a frozen box}
+     */
+    public long getFrozenPruned() {
+        return frozenPruned.sum();
+    }
+
+    /**
+     * {@return the number of states pruned because of a closed corral}
+     */
+    public long getCorralPruned() {
+        return corralPruned.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d checked, %d pruned as frozen, %d pruned as closed corral",
+                getChecked(), getFrozenPruned(), getCorralPruned());
+    }
+
+    private int cellOf(PackedState state, int index) {
+        var position = state.getPosition(index);
+        return board.cellOf(position.row(), position.col());
+    }
+
+    private boolean isFreezeDeadlock(Scratch scratch, int boxStamp, int box) {
+        var boxes = scratch.boxes;
+        if (!isFrozen(boxes, boxStamp, box, scratch.assumedWalls)) {
+            return false;
+        }
+        // The pushed box may be frozen on a target while freezing its neighbors off target.
+        var group = scratch.cells;
+        var visited = scratch.visited;
+        var stamp = scratch.next();
+        var size = 0;
+        group[size++] = box;
+        visited[box] = stamp;
+        for (var i = 0; i < size; i++) {
+            var cell = group[i];
+            if (!target[cell] && isFrozen(boxes, boxStamp, cell, scratch.assumedWalls)) {
+                return true;
+            }
+            for (var offset : offsets) {
+                var next = cell + offset;
+                if (boxes[next] == boxStamp && visited[next] != stamp) {
+                    visited[next] = stamp;
+                    group[size++] = next;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the box on the cell is blocked on both axes. The boxes on the current
+     * chain of the recursion are treated as walls to avoid checking a box twice; they are
+     * unmarked on the way back, so the array is all false again after every call.
+     */
+    private boolean isFrozen(int[] boxes, int stamp, int cell, boolean[] assumedWalls) {
+        assumedWalls[cell] = true;
+        var frozen = isBlocked(boxes, stamp, cell, offsets[Direction.LEFT.ordinal()], assumedWalls)
+                && isBlocked(boxes, stamp, cell, offsets[Direction.UP.ordinal()], assumedWalls);
+        assumedWalls[cell] = false;
+        return frozen;
+    }
+
+    private boolean isBlocked(int[] boxes, int stamp, int cell, int offset, boolean[] assumedWalls) {
+        var before = cell - offset;
+        var after = cell + offset;
+        if (!floor[before] || !floor[after] || assumedWalls[before] || assumedWalls[after]) {
+            return true;
+        }
+        if (dead[before] && dead[after]) {
+            return true;
+        }
+        return (boxes[before] == stamp && isFrozen(boxes, stamp, before, assumedWalls))
+                || (boxes[after] == stamp && isFrozen(boxes, stamp, after, assumedWalls));
+    }
+
+    private boolean isClosedCorralDeadlock(Scratch scratch, int boxStamp, int player, int box) {
+        var boxes = scratch.boxes;
+        var reachable = scratch.reachable;
+        var reachableStamp = flood(scratch, player, boxes, boxStamp);
+
+        // The area around the pushed box that the player cannot get into, fences included.
+        var inCorral = scratch.visited;
+        var corral = scratch.cells;
+        var corralStamp = scratch.next();
+        var size = 0;
+        inCorral[box] = corralStamp;
+        corral[size++] = box;
+        var hasInside = false;
+        for (var i = 0; i < size; i++) {
+            var cell = corral[i];
+            hasInside |= boxes[cell] != boxStamp;
+            for (var offset : offsets) {
+                var next = cell + offset;
+                if (floor[next] && reachable[next] != reachableStamp && inCorral[next] != corralStamp) {
+                    inCorral[next] = corralStamp;
+                    corral[size++] = next;
+                }
+            }
+        }
+        if (!hasInside) {
+            return false;
+        }
+
+        // Keep only the fence and check whether any of its boxes could ever be pushed.
+        var fence = scratch.fence;
+        var fenceStamp = scratch.next();
+        var solved = true;
+        for (var i = 0; i < size; i++) {
+            var cell = corral[i];
+            var isBox = boxes[cell] == boxStamp;
+            if (isBox) {
+                fence[cell] = fenceStamp;
+            }
+            solved &= isBox == target[cell];
+        }
+        var relaxedStamp = flood(scratch, player, fence, fenceStamp);
+        for (var i = 0; i < size; i++) {
+            var cell = corral[i];
+            if (fence[cell] != fenceStamp) {
+                continue;
+            }
+            for (var offset : offsets) {
+                var destination = cell + offset;
+                if (reachable[cell - offset] == relaxedStamp && floor[destination] && !dead[destination]
+                        && fence[destination] != fenceStamp) {
+                    return false;
+                }
+            }
+        }
+        return !solved;
+    }
+
+    /**
+     * Floods the cells the player can reach from the start, stepping around the cells of
+     * the blocked set, into the reachable set of the scratch.
+     *
+     * @return the stamp of the reachable cells
+     */
+    private int flood(Scratch scratch, int start, int[] blocked, int blockedStamp) {
+        var reachable = scratch.reachable;
+        var queue = scratch.queue;
+        var stamp = scratch.next();
+        var head = 0;
+        var tail = 0;
+        reachable[start] = stamp;
+        queue[tail++] = start;
+        while (head < tail) {
+            var cell = queue[head++];
+            for (var offset : offsets) {
+                var next = cell + offset;
+                if (floor[next] && blocked[next] != blockedStamp && reachable[next] != stamp) {
+                    reachable[next] = stamp;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return stamp;
+    }
+
+    /**
+     * The working arrays of one thread, indexed by cell. Instead of clearing a set before
+     * each use, a cell is in the set when it holds the stamp the set was last given, so a
+     * check only writes the cells it visits.
+     */
+    private static final class Scratch {
+
+        /**
+         * The number of stamps a single check may take.
+         */
+        private static final int STAMPS_PER_CHECK = 8;
+
+        private final int[] boxes;
+
+        private final int[] visited;
+
+        private final int[] fence;
+
+        private final int[] reachable;
+
+        private final boolean[] assumedWalls;
+
+        private final int[] cells;
+
+        private final int[] queue;
+
+        private int stamp;
+
+        private Scratch(int cellCount) {
+            boxes = new int[cellCount];
+            visited = new int[cellCount];
+            fence = new int[cellCount];
+            reachable = new int[cellCount];
+            assumedWalls = new boolean[cellCount];
+            cells = new int[cellCount];
+            queue = new int[cellCount];
+        }
+
+        /**
+         * Clears the sets once the stamps are about to wrap around, before a check starts.
+         */
+        private void reset() {
+            if (stamp > Integer.MAX_VALUE - STAMPS_PER_CHECK) {
+                Arrays.fill(boxes, 0);
+                Arrays.fill(visited, 0);
+                Arrays.fill(fence, 0);
+                Arrays.fill(reachable, 0);
+                stamp = 0;
+            }
+        }
+
+        /**
+         * {@return a stamp no cell holds yet, which empties the set it is given to}
+         */
+        private int next() {
+            return ++stamp;
+        }
+
+    }
+
+}
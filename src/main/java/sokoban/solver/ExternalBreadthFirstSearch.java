@@ -0,0 +1,498 @@
+package sokoban.solver;
+
+import sokoban.state.Direction;
+import sokoban.state.PackedState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Breadth-first search keeping its layers on disk instead of in memory, for levels
+ * whose state space does not fit into the heap.
+ * <p>
+ * Every layer is a file of fixed-size records, the packed words of a state followed
+ * by a tag holding the move that reached it, sorted by the words. The successors of a
+ * layer are collected in memory up to a bounded number, sorted and written to run
+ * files. The runs are then merged into the next layer, dropping duplicates as well as
+ * the states already visited in any previous layer, since pushes cannot be taken back and
+ * a state may reappear after more than two layers. The visited states are kept in one more
+ * sorted file, streamed alongside the runs and rewritten with the new layer merged in, so a
+ * merge reads a single file of previous states and keeps as many files open whatever the
+ * depth. The solution
+ * is rebuilt from the goal by taking back the tagged moves, looking up every parent in
+ * its layer by a binary search. All the files are deleted when the search is over.
+ */
+public class ExternalBreadthFirstSearch {
+
+    /**
+     * The default number of successors sorted in memory before they are written to a run.
+     */
+    public static final int DEFAULT_RUN_SIZE = 1 << 20;
+
+    private static final int PUSHED = 1 << 2;
+
+    private static final byte ROOT = (byte) 0x80;
+
+    private static final int RECORDS_PER_BUFFER = 4096;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Path directory;
+
+    private final int runSize;
+
+    private final DeadlockDetector deadlockDetector;
+
+    private final SearchMetrics metrics = new SearchMetrics("external-bfs");
+
+    private long bytesWritten;
+
+    /**
+     * Creates a search storing its files in the default temporary directory.
+     */
+    public ExternalBreadthFirstSearch() {
+        this(Path.of(System.getProperty("java.io.tmpdir")), DEFAULT_RUN_SIZE, new DeadlockDetector());
+    }
+
+    /**
+     * Creates a search.
+     *
+     * @param directory the directory in which a working directory is created for every search
+     * @param runSize the number of successors sorted in memory before they are written to disk
+     * @param deadlockDetector the detector used to prune deadlocked successors
+     */
+    public ExternalBreadthFirstSearch(Path directory, int runSize, DeadlockDetector deadlockDetector) {
+        if (runSize < 1) {
+            throw new IllegalArgumentException("A run must hold at least one state.");
+        }
+        this.directory = directory;
+        this.runSize = runSize;
+        this.deadlockDetector = deadlockDetector;
+    }
+
+    /**
+     * {@return the number of bytes written to disk by the last search}
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Searches for a shortest solution starting from the specified state.
+     *
+     * @param initialState the state to start the search from
+     * @return the solution found, or an empty optional if the state cannot be solved
+     * @throws UncheckedIOException if the files of the search cannot be written or read
+     * @throws CancellationException if the calling thread is interrupted during the search
+     */
+    public Optional<Solution> solve(PackedState initialState) {
+        metrics.begin();
+        var solution = Optional.<Solution>empty();
+        try {
+            solution = search(initialState);
+            return solution;
+        } finally {
+            metrics.end(solution);
+        }
+    }
+
+    /**
+     * {@return the live counters of the search}
+     */
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    private Optional<Solution> search(PackedState initialState) {
+        var start = initialState.clone();
+        if (start.isSolved()) {
+            return Optional.of(new Solution(List.of(), 0, 0));
+        }
+        bytesWritten = 0;
+        Path workDirectory = null;
+        try {
+            workDirectory = Files.createTempDirectory(directory, "sokoban-bfs");
+            return new Search(start, workDirectory).run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (workDirectory != null) {
+                delete(workDirectory);
+            }
+        }
+    }
+
+    private static void delete(Path workDirectory) {
+        try (var files = Files.list(workDirectory)) {
+            for (var file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(workDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long[] wordsOf(PackedState state) {
+        var words = new long[state.getWordCount()];
+        for (var i = 0; i < words.length; i++) {
+            words[i] = state.getWord(i);
+        }
+        return words;
+    }
+
+    private static byte tagOf(Direction direction, boolean pushed) {
+        return (byte) (direction.ordinal() | (pushed ? PUSHED : 0));
+    }
+
+    private record Entry(long[] words, byte tag) {
+    }
+
+    private record Goal(PackedState state, int tag) {
+    }
+
+    private final class Search {
+
+        private final PackedState start;
+
+        private final Path workDirectory;
+
+        private final int wordCount;
+
+        private final int recordSize;
+
+        private final List<Path> layers = new ArrayList<>();
+
+        /**
+         * The sorted file of every state in the layers so far.
+         */
+        private Path visitedFile;
+
+        private long expanded;
+
+        private long generated;
+
+        private long duplicates;
+
+        private long visited = 1;
+
+        private int files;
+
+        private Search(PackedState start, Path workDirectory) {
+            this.start = start;
+            this.workDirectory = workDirectory;
+            wordCount = start.getWordCount();
+            recordSize = wordCount * Long.BYTES + 1;
+        }
+
+        private Optional<Solution> run() throws IOException {
+            var first = newFile("layer");
+            try (var writer = new RecordWriter(first)) {
+                writer.write(wordsOf(start), ROOT);
+            }
+            layers.add(first);
+            visitedFile = newFile("visited");
+            Files.copy(first, visitedFile);
+            while (true) {
+                var runs = expand(layers.get(layers.size() - 1));
+                var next = newFile("layer");
+                var nextVisited = newFile("visited");
+                var goal = merge(runs, next, nextVisited);
+                for (var run : runs) {
+                    Files.delete(run);
+                }
+                Files.delete(visitedFile);
+                visitedFile = nextVisited;
+                if (goal.isPresent()) {
+                    return Optional.of(new Solution(pathTo(goal.get()), expanded, generated));
+                }
+                if (Files.size(next) == 0) {
+                    return Optional.empty();
+                }
+                layers.add(next);
+            }
+        }
+
+        private Path newFile(String prefix) {
+            return workDirectory.resolve(prefix + "-" + files++);
+        }
+
+        /**
+         * Expands every state of a layer, writing the successors to sorted runs.
+         */
+        private List<Path> expand(Path layer) throws IOException {
+            var runs = new ArrayList<Path>();
+            var buffer = new ArrayList<Entry>();
+            var successors = new PackedState[Direction.values().length];
+            var remaining = Files.size(layer) / recordSize;
+            try (var reader = new RecordReader(layer)) {
+                for (; reader.hasRecord(); reader.advance()) {
+                    var state = start.withWords(reader.words);
+                    expanded++;
+                    metrics.update(expanded, generated, duplicates, remaining--, visited, layers.size());
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new CancellationException("The search was interrupted.");
+                    }
+                    for (var moves = state.getSuccessors(successors); moves != 0; moves &= moves - 1) {
+                        var direction = Direction.fromMask(moves);
+                        var pushed = state.isPush(direction);
+                        var child = successors[direction.ordinal()];
+                        generated++;
+                        if (pushed && deadlockDetector.isDeadlockAfterPush(child, direction)) {
+                            continue;
+                        }
+                        buffer.add(new Entry(wordsOf(child), tagOf(direction, pushed)));
+                        if (buffer.size() >= runSize) {
+                            runs.add(writeRun(buffer));
+                            buffer.clear();
+                        }
+                    }
+                }
+            }
+            if (!buffer.isEmpty()) {
+                runs.add(writeRun(buffer));
+            }
+            return runs;
+        }
+
+        private Path writeRun(List<Entry> entries) throws IOException {
+            entries.sort(Comparator.comparing(Entry::words, Arrays::compare));
+            var run = newFile("run");
+            try (var writer = new RecordWriter(run)) {
+                long[] last = null;
+                for (var entry : entries) {
+                    if (!Arrays.equals(last, entry.words())) {
+                        writer.write(entry.words(), entry.tag());
+                        last = entry.words();
+                    } else {
+                        duplicates++;
+                    }
+                }
+            }
+            return run;
+        }
+
+        /**
+         * Merges the runs into the next layer, leaving out every state already visited, and
+         * writes the visited states with those of the next layer to a new sorted file.
+         *
+         * @return the first solved state written, if any
+         */
+        private Optional<Goal> merge(List<Path> runs, Path next, Path nextVisited) throws IOException {
+            var readers = new ArrayList<RecordReader>();
+            try (var writer = new RecordWriter(next); var visitedWriter = new RecordWriter(nextVisited)) {
+                var queue = new PriorityQueue<RecordReader>((a, b) -> Arrays.compare(a.words, b.words));
+                for (var run : runs) {
+                    var reader = new RecordReader(run);
+                    readers.add(reader);
+                    if (reader.hasRecord()) {
+                        queue.add(reader);
+                    }
+                }
+                var previous = new RecordReader(visitedFile);
+                readers.add(previous);
+                long[] last = null;
+                while (!queue.isEmpty()) {
+                    var reader = queue.poll();
+                    var words = reader.words.clone();
+                    var tag = reader.tag;
+                    reader.advance();
+                    if (reader.hasRecord()) {
+                        queue.add(reader);
+                    }
+                    if (Arrays.equals(last, words)) {
+                        duplicates++;
+                        continue;
+                    }
+                    last = words;
+                    if (isVisited(previous, words, visitedWriter)) {
+                        duplicates++;
+                        continue;
+                    }
+                    writer.write(words, tag);
+                    visitedWriter.write(words, tag);
+                    visited++;
+                    var state = start.withWords(words);
+                    if (state.isSolved()) {
+                        return Optional.of(new Goal(state, Byte.toUnsignedInt(tag)));
+                    }
+                }
+                for (; previous.hasRecord(); previous.advance()) {
+                    visitedWriter.write(previous.words, previous.tag);
+                }
+                return Optional.empty();
+            } finally {
+                for (var reader : readers) {
+                    reader.close();
+                }
+            }
+        }
+
+        /**
+         * Advances the reader of the visited states up to the words given, which must be
+         * larger than the words of any earlier call, copying the states passed over.
+         */
+        private boolean isVisited(RecordReader previous, long[] words, RecordWriter visitedWriter) throws IOException {
+            while (previous.hasRecord() && Arrays.compare(previous.words, words) < 0) {
+                visitedWriter.write(previous.words, previous.tag);
+                previous.advance();
+            }
+            return previous.hasRecord() && Arrays.equals(previous.words, words);
+        }
+
+        private List<Direction> pathTo(Goal goal) throws IOException {
+            var moves = new ArrayList<Direction>();
+            var state = goal.state().clone();
+            var tag = goal.tag();
+            for (var depth = layers.size(); depth > 0; depth--) {
+                var direction = DIRECTIONS[tag & ~PUSHED];
+                state.undoMove(direction, (tag & PUSHED) != 0);
+                moves.add(direction);
+                if (depth > 1) {
+                    tag = findTag(layers.get(depth - 1), wordsOf(state));
+                }
+            }
+            Collections.reverse(moves);
+            return moves;
+        }
+
+        private int findTag(Path layer, long[] words) throws IOException {
+            try (var channel = FileChannel.open(layer, StandardOpenOption.READ)) {
+                var record = ByteBuffer.allocate(recordSize);
+                var current = new long[wordCount];
+                var low = 0L;
+                var high = channel.size() / recordSize - 1;
+                while (low <= high) {
+                    var middle = (low + high) >>> 1;
+                    record.clear();
+                    while (record.hasRemaining()
+                            && channel.read(record, middle * recordSize + record.position()) >= 0) {
+                        // Keep reading until the whole record is in the buffer.
+                    }
+                    record.flip();
+                    for (var i = 0; i < wordCount; i++) {
+                        current[i] = record.getLong();
+                    }
+                    var comparison = Arrays.compare(current, words);
+                    if (comparison < 0) {
+                        low = middle + 1;
+                    } else if (comparison > 0) {
+                        high = middle - 1;
+                    } else {
+                        return Byte.toUnsignedInt(record.get());
+                    }
+                }
+            }
+            throw new IllegalStateException("The parent of a state is missing from its layer.");
+        }
+
+        /**
+         * Writes records to a file through a buffer.
+         */
+        private final class RecordWriter implements Closeable {
+
+            private final FileChannel channel;
+
+            private final ByteBuffer buffer = ByteBuffer.allocate(recordSize * RECORDS_PER_BUFFER);
+
+            private RecordWriter(Path path) throws IOException {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            }
+
+            private void write(long[] words, byte tag) throws IOException {
+                if (buffer.remaining() < recordSize) {
+                    flush();
+                }
+                for (var word : words) {
+                    buffer.putLong(word);
+                }
+                buffer.put(tag);
+            }
+
+            private void flush() throws IOException {
+                buffer.flip();
+                bytesWritten += buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    flush();
+                } finally {
+                    channel.close();
+                }
+            }
+
+        }
+
+        /**
+         * Reads the records of a file one by one through a buffer.
+         */
+        private final class RecordReader implements Closeable {
+
+            private final FileChannel channel;
+
+            private final ByteBuffer buffer = ByteBuffer.allocate(recordSize * RECORDS_PER_BUFFER);
+
+            private final long[] words = new long[wordCount];
+
+            private byte tag;
+
+            private boolean hasRecord;
+
+            private RecordReader(Path path) throws IOException {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+                buffer.flip();
+                advance();
+            }
+
+            private boolean hasRecord() {
+                return hasRecord;
+            }
+
+            private void advance() throws IOException {
+                if (!buffer.hasRemaining()) {
+                    buffer.clear();
+                    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                        // Fill the buffer, so it always holds whole records.
+                    }
+                    buffer.flip();
+                }
+                hasRecord = buffer.remaining() >= recordSize;
+                if (hasRecord) {
+                    for (var i = 0; i < wordCount; i++) {
+                        words[i] = buffer.getLong();
+                    }
+                    tag = buffer.get();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+
+        }
+
+    }
+
+}
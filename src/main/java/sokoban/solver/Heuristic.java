@@ -0,0 +1,18 @@
+package sokoban.solver;
+
+import sokoban.state.PackedState;
+
+/**
+ * Estimates the number of moves still needed to solve a state.
+ */
+@FunctionalInterface
+public interface Heuristic {
+
+    /**
+     * {@return a lower bound on the number of moves needed to solve the state given}
+     *
+     * @param state the state to be estimated
+     */
+    int estimate(PackedState state);
+
+}
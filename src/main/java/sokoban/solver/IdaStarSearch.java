@@ -0,0 +1,164 @@
+package sokoban.solver;
+
+import sokoban.state.Direction;
+import sokoban.state.PackedState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Iterative-deepening A* search over the moves of the player.
+ * Each iteration is a depth-first search bounded by the estimated solution length,
+ * making and undoing the moves in place on a single state. States already reached
+ * at no higher cost in the current iteration are pruned through a
+ * {@link TranspositionTable}, so the memory used is fixed by the size of the table
+ * while the solutions found stay optimal for an admissible heuristic.
+ */
+public class IdaStarSearch {
+
+    /**
+     * The default number of entries of the transposition table.
+     */
+    public static final int DEFAULT_TABLE_SIZE = 1 << 20;
+
+    private static final int FOUND = -1;
+
+    private final Heuristic heuristic;
+
+    private final TranspositionTable table;
+
+    private final DeadlockDetector deadlockDetector;
+
+    private final List<Direction> path = new ArrayList<>();
+
+    private long expanded;
+
+    private long generated;
+
+    private long duplicates;
+
+    private int depth;
+
+    private final SearchMetrics metrics = new SearchMetrics("idastar");
+
+    /**
+     * Creates an IDA* search guided by the {@link AssignmentHeuristic} with a table
+     * of the default size.
+     */
+    public IdaStarSearch() {
+        this(new AssignmentHeuristic(), DEFAULT_TABLE_SIZE);
+    }
+
+    /**
+     * Creates an IDA* search.
+     *
+     * @param heuristic a heuristic that never overestimates the number of moves left
+     * @param tableSize the number of entries of the transposition table
+     */
+    public IdaStarSearch(Heuristic heuristic, int tableSize) {
+        this(heuristic, tableSize, new DeadlockDetector());
+    }
+
+    /**
+     * Creates an IDA* search.
+     *
+     * @param heuristic a heuristic that never overestimates the number of moves left
+     * @param tableSize the number of entries of the transposition table
+     * @param deadlockDetector the detector used to prune deadlocked successors
+     */
+    public IdaStarSearch(Heuristic heuristic, int tableSize, DeadlockDetector deadlockDetector) {
+        this.heuristic = heuristic;
+        this.table = new TranspositionTable(tableSize);
+        this.deadlockDetector = deadlockDetector;
+    }
+
+    /**
+     * Searches for a shortest solution starting from the specified state.
+     *
+     * @param initialState the state to start the search from, it is not modified
+     * @return the solution found, or an empty optional if the state cannot be solved
+     * @throws CancellationException if the calling thread is interrupted during the search
+     */
+    public Optional<Solution> solve(PackedState initialState) {
+        metrics.begin();
+        var solution = Optional.<Solution>empty();
+        try {
+            solution = iterate(initialState);
+            return solution;
+        } finally {
+            metrics.end(solution);
+        }
+    }
+
+    /**
+     * {@return the live counters of the search}
+     */
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    private Optional<Solution> iterate(PackedState initialState) {
+        var state = initialState.clone();
+        path.clear();
+        expanded = 0;
+        generated = 0;
+        duplicates = 0;
+        depth = 0;
+
+        var bound = heuristic.estimate(state);
+        while (true) {
+            table.clear();
+            var next = search(state, 0, bound);
+            if (next == FOUND) {
+                return Optional.of(new Solution(path, expanded, generated));
+            }
+            if (next == Integer.MAX_VALUE) {
+                return Optional.empty();
+            }
+            bound = next;
+        }
+    }
+
+    private int search(PackedState state, int cost, int bound) {
+        var estimate = cost + heuristic.estimate(state);
+        if (estimate > bound) {
+            return estimate;
+        }
+        if (state.isSolved()) {
+            return FOUND;
+        }
+        if (table.isReachedCheaper(state, cost)) {
+            duplicates++;
+            return Integer.MAX_VALUE;
+        }
+        expanded++;
+        depth = Math.max(depth, cost);
+        metrics.update(expanded, generated, duplicates, path.size(), table.size(), depth);
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("The search was interrupted.");
+        }
+        var nextBound = Integer.MAX_VALUE;
+        for (var moves = state.getLegalMoveMask(); moves != 0; moves &= moves - 1) {
+            var direction = Direction.fromMask(moves);
+            var pushed = state.isPush(direction);
+            state.makeMove(direction);
+            generated++;
+            if (pushed && deadlockDetector.isDeadlockAfterPush(state, direction)) {
+                state.undoMove(direction, true);
+                continue;
+            }
+            path.add(direction);
+            var result = search(state, cost + 1, bound);
+            if (result == FOUND) {
+                return FOUND;
+            }
+            path.remove(path.size() - 1);
+            state.undoMove(direction, pushed);
+            nextBound = Math.min(nextBound, result);
+        }
+        return nextBound;
+    }
+
+}
@@ -2,14 +2,82 @@ package sokoban.solver;
 
 import puzzle.solver.BreadthFirstSearch;
 import sokoban.state.Direction;
-import sokoban.state.SokobanState;
+import sokoban.state.Level;
+import sokoban.state.PackedState;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static sokoban.solver.SolutionCache.Objective.MOVES;
+import static sokoban.solver.SolutionCache.Objective.PUSHES;
 
 
 public class Main {
 
-    public static void main(String[] args) {
-        var bfs = new BreadthFirstSearch<Direction>();
-        bfs.solveAndPrintSolution(new SokobanState());
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("batch")) {
+            BatchSolver.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        SolutionCache cache = null;
+        var cacheOption = Arrays.asList(args).indexOf("--cache");
+        if (cacheOption >= 0 && cacheOption + 1 < args.length) {
+            cache = new SolutionCache(Path.of(args[cacheOption + 1]), 1);
+            var rest = new ArrayList<>(Arrays.asList(args));
+            rest.subList(cacheOption, cacheOption + 2).clear();
+            args = rest.toArray(String[]::new);
+        }
+        var algorithm = args.length > 0 ? args[0] : "bfs";
+        var level = args.length > 1
+                ? Level.load(Path.of(args[1])).get(args.length > 2 ? Integer.parseInt(args[2]) - 1 : 0)
+                : Level.builtIn();
+        var initialState = PackedState.of(level.createState());
+        var deadlockDetector = new DeadlockDetector(level.board());
+        var heuristic = new AssignmentHeuristic(level.board());
+        switch (algorithm) {
+            case "bfs" -> new BreadthFirstSearch<Direction>().solveAndPrintSolution(initialState);
+            case "astar" -> printSolution(solve(cache, MOVES, initialState,
+                    new AStarSearch(heuristic, deadlockDetector)::solve));
+            case "idastar" -> printSolution(solve(cache, MOVES, initialState, new IdaStarSearch(heuristic,
+                    IdaStarSearch.DEFAULT_TABLE_SIZE, deadlockDetector)::solve));
+            case "parallel-bfs" -> printSolution(solve(cache, MOVES, initialState, new ParallelBreadthFirstSearch(
+                    Runtime.getRuntime().availableProcessors(), deadlockDetector)::solve));
+            case "bidirectional" -> printSolution(solve(cache, MOVES, initialState,
+                    new BidirectionalSearch(level.board())::solve));
+            case "push" -> printSolution(solve(cache, PUSHES, initialState, new PushSearch(deadlockDetector)::solve));
+            case "compact-bfs", "compact-bfs-offheap" -> {
+                var search = new CompactBreadthFirstSearch(deadlockDetector, algorithm.endsWith("offheap"));
+                printSolution(solve(cache, MOVES, initialState, search::solve));
+                search.getVisited().ifPresent(visited -> System.out.println("Visited: " + visited));
+            }
+            case "external-bfs" -> {
+                var search = new ExternalBreadthFirstSearch(Path.of(System.getProperty("java.io.tmpdir")),
+                        ExternalBreadthFirstSearch.DEFAULT_RUN_SIZE, deadlockDetector);
+                printSolution(solve(cache, MOVES, initialState, search::solve));
+                System.out.println("Written to disk: " + search.getBytesWritten() + " bytes");
+            }
+            default -> throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+        if (deadlockDetector.getChecked() > 0) {
+            System.out.println("Deadlocks: " + deadlockDetector);
+        }
+        if (cache != null) {
+            System.out.println("Cache: " + cache);
+        }
+    }
+
+    private static Optional<Solution> solve(SolutionCache cache, SolutionCache.Objective objective,
+                                            PackedState initialState,
+                                            Function<PackedState, Optional<Solution>> search) {
+        return cache == null ? search.apply(initialState) : cache.solve(initialState, objective, search);
+    }
+
+    private static void printSolution(Optional<Solution> solution) {
+        solution.ifPresentOrElse(System.out::println, () -> System.out.println("No solution found"));
     }
 
 }
@@ -0,0 +1,277 @@
+package sokoban.solver;
+
+import sokoban.state.PackedState;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Open-addressing hash set of packed states, storing only the packed words of every
+ * state together with a one byte tag, either on the heap or off-heap in a direct buffer.
+ * Collisions are resolved by linear probing, and the table doubles once it is three
+ * quarters full. A slot is empty while its first word is zero, which is never the case
+ * for a packed state, since the cell of the player is never zero.
+ * <p>
+ * The set records how many slots were probed per lookup, so the quality of the hashing
+ * can be checked on large searches.
+ */
+public class PackedStateSet {
+
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE;
+
+    private final int words;
+
+    private final boolean offHeap;
+
+    private ByteBuffer keys;
+
+    private ByteBuffer tags;
+
+    private int mask;
+
+    private long size;
+
+    private long lookups;
+
+    private long probes;
+
+    private int maxProbeLength;
+
+    /**
+     * Creates an empty set on the heap.
+     *
+     * @param words the number of words of the states, as returned by {@link PackedState#getWordCount()}
+     * @param expectedSize the number of states the set should hold without growing
+     */
+    public PackedStateSet(int words, int expectedSize) {
+        this(words, expectedSize, false);
+    }
+
+    /**
+     * Creates an empty set.
+     *
+     * @param words the number of words of the states, as returned by {@link PackedState#getWordCount()}
+     * @param expectedSize the number of states the set should hold without growing
+     * @param offHeap whether the entries are stored in direct buffers outside the heap
+     */
+    public PackedStateSet(int words, int expectedSize, boolean offHeap) {
+        if (words < 1) {
+            throw new IllegalArgumentException("States have at least one word.");
+        }
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("The expected size cannot be negative.");
+        }
+        this.words = words;
+        this.offHeap = offHeap;
+        var capacity = Math.max(16, Long.highestOneBit((long) (expectedSize / MAX_LOAD_FACTOR)) << 1);
+        allocate(checkedCapacity(capacity));
+    }
+
+    /**
+     * Adds a state to the set with a zero tag.
+     *
+     * @param state the state to be added
+     * @return true if the state was not in the set before
+     */
+    public boolean add(PackedState state) {
+        return add(state, (byte) 0);
+    }
+
+    /**
+     * Adds a state to the set with the specified tag. The tag of a state already in the
+     * set is left unchanged.
+     *
+     * @param state the state to be added
+     * @param tag a byte stored along with the state, for example the move it was reached by
+     * @return true if the state was not in the set before
+     */
+    public boolean add(PackedState state, byte tag) {
+        var slot = find(state);
+        if (!isEmpty(slot)) {
+            return false;
+        }
+        for (var i = 0; i < words; i++) {
+            keys.putLong(offsetOf(slot, i), state.getWord(i));
+        }
+        tags.put(slot, tag);
+        if (++size > MAX_LOAD_FACTOR * capacity()) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a state is in the set.
+     *
+     * @param state the state to be looked up
+     * @return true if the state is in the set
+     */
+    public boolean contains(PackedState state) {
+        return !isEmpty(find(state));
+    }
+
+    /**
+     * Returns the tag stored with a state.
+     *
+     * @param state the state to be looked up
+     * @return the tag of the state as an unsigned value, or {@code -1} if the state is not in the set
+     */
+    public int getTag(PackedState state) {
+        var slot = find(state);
+        return isEmpty(slot) ? -1 : Byte.toUnsignedInt(tags.get(slot));
+    }
+
+    /**
+     * {@return the number of states in the set}
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * {@return the number of slots of the table}
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * {@return whether the entries are stored outside the heap}
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * {@return the fraction of the slots in use}
+     */
+    public double loadFactor() {
+        return (double) size / capacity();
+    }
+
+    /**
+     * {@return the average number of slots probed per lookup, 1 meaning no collisions at all}
+     */
+    public double averageProbeLength() {
+        return lookups == 0 ? 0 : (double) probes / lookups;
+    }
+
+    /**
+     * {@return the largest number of slots probed by a single lookup}
+     */
+    public int maxProbeLength() {
+        return maxProbeLength;
+    }
+
+    /**
+     * {@return the number of bytes taken by the table}
+     */
+    public long memoryUsage() {
+        return (long) capacity() * (words * Long.BYTES + 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d states in %d slots (%s, %.1f MB), load factor %.2f, %.2f average and %d maximum probes",
+                size, capacity(), offHeap ? "off-heap" : "on heap", memoryUsage() / 1e6,
+                loadFactor(), averageProbeLength(), maxProbeLength);
+    }
+
+    /**
+     * Returns the slot holding the state, or the empty slot where it would be stored.
+     */
+    private int find(PackedState state) {
+        var hash = 0L;
+        for (var i = 0; i < words; i++) {
+            hash = mix(hash, state.getWord(i));
+        }
+        var slot = finish(hash) & mask;
+        var length = 1;
+        while (!isEmpty(slot) && !matches(slot, state)) {
+            slot = (slot + 1) & mask;
+            length++;
+        }
+        lookups++;
+        probes += length;
+        maxProbeLength = Math.max(maxProbeLength, length);
+        return slot;
+    }
+
+    private boolean matches(int slot, PackedState state) {
+        for (var i = 0; i < words; i++) {
+            if (keys.getLong(offsetOf(slot, i)) != state.getWord(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isEmpty(int slot) {
+        return keys.getLong(offsetOf(slot, 0)) == 0;
+    }
+
+    private int offsetOf(int slot, int word) {
+        return (slot * words + word) << 3;
+    }
+
+    private void grow() {
+        var oldKeys = keys;
+        var oldTags = tags;
+        var oldCapacity = capacity();
+        allocate(checkedCapacity(2L * oldCapacity));
+        for (var oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            var base = oldSlot * words << 3;
+            if (oldKeys.getLong(base) == 0) {
+                continue;
+            }
+            var hash = 0L;
+            for (var i = 0; i < words; i++) {
+                hash = mix(hash, oldKeys.getLong(base + (i << 3)));
+            }
+            var slot = finish(hash) & mask;
+            while (!isEmpty(slot)) {
+                slot = (slot + 1) & mask;
+            }
+            for (var i = 0; i < words; i++) {
+                keys.putLong(offsetOf(slot, i), oldKeys.getLong(base + (i << 3)));
+            }
+            tags.put(slot, oldTags.get(oldSlot));
+        }
+    }
+
+    private int checkedCapacity(long capacity) {
+        if (capacity * words * Long.BYTES > MAX_BUFFER_SIZE) {
+            var maxCapacity = Integer.highestOneBit(MAX_BUFFER_SIZE / (words * Long.BYTES));
+            throw new IllegalStateException("The set cannot hold more than "
+                    + (long) (MAX_LOAD_FACTOR * maxCapacity) + " states.");
+        }
+        return (int) capacity;
+    }
+
+    private void allocate(int capacity) {
+        var keyBytes = capacity * words * Long.BYTES;
+        keys = (offHeap ? ByteBuffer.allocateDirect(keyBytes) : ByteBuffer.allocate(keyBytes))
+                .order(ByteOrder.nativeOrder());
+        tags = offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        mask = capacity - 1;
+    }
+
+    private static long mix(long hash, long word) {
+        return (hash ^ word) * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * The final avalanche step of MurmurHash3, so every bit of the words affects the slot.
+     */
+    private static int finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+}
@@ -0,0 +1,214 @@
+package sokoban.solver;
+
+import sokoban.state.Direction;
+import sokoban.state.PackedState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Layer-synchronous breadth-first search that expands each layer of the frontier
+ * in parallel on a {@link ForkJoinPool}.
+ * Duplicates are detected through a concurrent map from every visited state to the
+ * state and move it was first reached from. Since a layer is only started once the
+ * previous one is complete, the solution found is still a shortest one.
+ */
+public class ParallelBreadthFirstSearch {
+
+    private static final int CHUNK_SIZE = 256;
+
+    private final int parallelism;
+
+    private final DeadlockDetector deadlockDetector;
+
+    private final SearchMetrics metrics = new SearchMetrics("parallel-bfs");
+
+    /**
+     * Creates a search using as many threads as there are available processors.
+     */
+    public ParallelBreadthFirstSearch() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a search using the specified number of threads.
+     *
+     * @param parallelism the number of worker threads
+     */
+    public ParallelBreadthFirstSearch(int parallelism) {
+        this(parallelism, new DeadlockDetector());
+    }
+
+    /**
+     * Creates a search using the specified number of threads.
+     *
+     * @param parallelism the number of worker threads
+     * @param deadlockDetector the detector used to prune deadlocked successors
+     */
+    public ParallelBreadthFirstSearch(int parallelism, DeadlockDetector deadlockDetector) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("At least one thread is required.");
+        }
+        this.parallelism = parallelism;
+        this.deadlockDetector = deadlockDetector;
+    }
+
+    /**
+     * {@return the number of worker threads}
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * {@return the live counters of the search, updated after every layer}
+     */
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Searches for a shortest solution starting from the specified state.
+     *
+     * @param initialState the state to start the search from
+     * @return the solution found, or an empty optional if the state cannot be solved
+     * @throws CancellationException if the calling thread is interrupted, which is checked between layers
+     */
+    public Optional<Solution> solve(PackedState initialState) {
+        metrics.begin();
+        var solution = Optional.<Solution>empty();
+        try {
+            solution = search(initialState);
+            return solution;
+        } finally {
+            metrics.end(solution);
+        }
+    }
+
+    private Optional<Solution> search(PackedState initialState) {
+        var start = initialState.clone();
+        if (start.isSolved()) {
+            return Optional.of(new Solution(List.of(), 0, 0));
+        }
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            var search = new Search();
+            search.parents.put(start, new Parent(null, null));
+            List<PackedState> frontier = List.of(start);
+            var depth = 0;
+            while (!frontier.isEmpty() && search.goal.get() == null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("The search was interrupted.");
+                }
+                frontier = pool.invoke(search.new Expansion(frontier, 0, frontier.size()));
+                depth++;
+                metrics.update(search.expanded.sum(), search.generated.sum(), search.duplicates.sum(),
+                        frontier.size(), search.parents.size(), depth);
+            }
+            var goal = search.goal.get();
+            if (goal == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new Solution(search.pathTo(goal), search.expanded.sum(), search.generated.sum()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private record Parent(PackedState state, Direction move) {
+    }
+
+    private final class Search {
+
+        private final ConcurrentHashMap<PackedState, Parent> parents = new ConcurrentHashMap<>();
+
+        private final AtomicReference<PackedState> goal = new AtomicReference<>();
+
+        private final LongAdder expanded = new LongAdder();
+
+        private final LongAdder generated = new LongAdder();
+
+        private final LongAdder duplicates = new LongAdder();
+
+        private List<Direction> pathTo(PackedState state) {
+            var moves = new ArrayList<Direction>();
+            for (var parent = parents.get(state); parent.move() != null; parent = parents.get(parent.state())) {
+                moves.add(parent.move());
+            }
+            Collections.reverse(moves);
+            return moves;
+        }
+
+        /**
+         * Expands a range of a layer and returns the new states reached from it.
+         */
+        private final class Expansion extends RecursiveTask<List<PackedState>> {
+
+            private final List<PackedState> layer;
+
+            private final int from;
+
+            private final int to;
+
+            private Expansion(List<PackedState> layer, int from, int to) {
+                this.layer = layer;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected List<PackedState> compute() {
+                if (to - from > CHUNK_SIZE) {
+                    var middle = (from + to) >>> 1;
+                    var left = new Expansion(layer, from, middle);
+                    left.fork();
+                    var right = new Expansion(layer, middle, to).compute();
+                    var result = left.join();
+                    result.addAll(right);
+                    return result;
+                }
+                var next = new ArrayList<PackedState>();
+                var successors = new PackedState[Direction.values().length];
+                for (var i = from; i < to && goal.get() == null; i++) {
+                    var state = layer.get(i);
+                    expanded.increment();
+                    for (var moves = state.getSuccessors(successors); moves != 0; moves &= moves - 1) {
+                        var direction = Direction.fromMask(moves);
+                        var pushed = state.isPush(direction);
+                        var child = successors[direction.ordinal()];
+                        generated.increment();
+                        if (pushed && deadlockDetector.isDeadlockAfterPush(child, direction)) {
+                            continue;
+                        }
+                        // Only the successors not seen before are copied out of the buffer.
+                        if (parents.containsKey(child)) {
+                            duplicates.increment();
+                            continue;
+                        }
+                        child = child.clone();
+                        if (parents.putIfAbsent(child, new Parent(state, direction)) == null) {
+                            if (child.isSolved()) {
+                                goal.compareAndSet(null, child);
+                            }
+                            next.add(child);
+                        } else {
+                            duplicates.increment();
+                        }
+                    }
+                }
+                return next;
+            }
+
+        }
+
+    }
+
+}
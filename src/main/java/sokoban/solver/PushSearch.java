@@ -0,0 +1,145 @@
+package sokoban.solver;
+
+import sokoban.state.Direction;
+import sokoban.state.PackedState;
+import sokoban.state.Push;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Breadth-first search over pushes instead of single moves.
+ * A node is a placement of the boxes together with the region the player can walk
+ * around in, represented by the top-left-most square of the region, so all the
+ * states the player can walk between without pushing are explored only once. The
+ * edges are pushes, and the pushes found are expanded back into moves at the end.
+ * The solution has the fewest pushes possible, but not necessarily the fewest moves.
+ */
+public class PushSearch {
+
+    private final DeadlockDetector deadlockDetector;
+
+    private final SearchMetrics metrics = new SearchMetrics("push");
+
+    /**
+     * Creates a push-level search pruning deadlocks on the board of {@link sokoban.state.SokobanState}.
+     */
+    public PushSearch() {
+        this(new DeadlockDetector());
+    }
+
+    /**
+     * Creates a push-level search.
+     *
+     * @param deadlockDetector the detector used to prune deadlocked successors
+     */
+    public PushSearch(DeadlockDetector deadlockDetector) {
+        this.deadlockDetector = deadlockDetector;
+    }
+
+    /**
+     * Searches for a solution with the fewest pushes starting from the specified state.
+     *
+     * @param initialState the state to start the search from
+     * @return the solution found, or an empty optional if the state cannot be solved
+     * @throws CancellationException if the calling thread is interrupted during the search
+     */
+    public Optional<Solution> solve(PackedState initialState) {
+        metrics.begin();
+        var solution = Optional.<Solution>empty();
+        try {
+            solution = search(initialState);
+            return solution;
+        } finally {
+            metrics.end(solution);
+        }
+    }
+
+    /**
+     * {@return the live counters of the search}
+     */
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    private Optional<Solution> search(PackedState initialState) {
+        var start = initialState.clone();
+        if (start.isSolved()) {
+            return Optional.of(new Solution(List.of(), 0, 0));
+        }
+        start.normalizePlayer();
+
+        var parents = new HashMap<PackedState, Link>();
+        parents.put(start, new Link(null, null, 0));
+        var queue = new ArrayDeque<PackedState>();
+        queue.add(start);
+        long expanded = 0;
+        long generated = 0;
+        long duplicates = 0;
+        while (!queue.isEmpty()) {
+            var state = queue.poll();
+            var depth = parents.get(state).depth();
+            expanded++;
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("The search was interrupted.");
+            }
+            for (var push : state.getLegalPushes()) {
+                var child = state.clone();
+                child.makePush(push);
+                generated++;
+                if (deadlockDetector.isDeadlockAfterPush(child, push.direction())) {
+                    continue;
+                }
+                if (child.isSolved()) {
+                    var pushes = pushesTo(parents, state);
+                    pushes.add(push);
+                    return Optional.of(new Solution(toMoves(initialState, pushes), expanded, generated));
+                }
+                child.normalizePlayer();
+                if (parents.putIfAbsent(child, new Link(state, push, depth + 1)) == null) {
+                    queue.add(child);
+                } else {
+                    duplicates++;
+                }
+            }
+            metrics.update(expanded, generated, duplicates, queue.size(), parents.size(), depth + 1);
+        }
+        return Optional.empty();
+    }
+
+    private static List<Push> pushesTo(HashMap<PackedState, Link> parents, PackedState state) {
+        var pushes = new ArrayList<Push>();
+        for (var link = parents.get(state); link.push() != null; link = parents.get(link.state())) {
+            pushes.add(link.push());
+        }
+        Collections.reverse(pushes);
+        return pushes;
+    }
+
+    /**
+     * Expands pushes into moves by walking the player to the square behind each box.
+     */
+    private static List<Direction> toMoves(PackedState initialState, List<Push> pushes) {
+        var state = initialState.clone();
+        var moves = new ArrayList<Direction>();
+        for (var push : pushes) {
+            var walk = state.findWalk(push.box().move(push.direction().opposite())).orElseThrow();
+            for (var direction : walk) {
+                state.makeMove(direction);
+            }
+            state.makeMove(push.direction());
+            moves.addAll(walk);
+            moves.add(push.direction());
+        }
+        return moves;
+    }
+
+    private record Link(PackedState state, Push push, int depth) {
+    }
+
+}
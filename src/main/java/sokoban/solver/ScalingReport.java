@@ -0,0 +1,64 @@
+package sokoban.solver;
+
+import sokoban.state.PackedState;
+import sokoban.state.SokobanState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prints how the throughput of {@link ParallelBreadthFirstSearch} scales with the
+ * number of threads. The built-in level is solved with 1, 2, 4, &hellip; threads up to
+ * the number of available processors, or up to the number given as the first argument,
+ * and the expanded nodes per second are reported for each thread count.
+ */
+public class ScalingReport {
+
+    private static final int WARMUP_RUNS = 10;
+
+    private static final int REPETITIONS = 5;
+
+    /**
+     * Runs the report.
+     *
+     * @param args the optional maximum number of threads
+     */
+    public static void main(String[] args) {
+        var maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        var initialState = PackedState.of(new SokobanState());
+
+        // Warm up the JIT compiler before measuring.
+        for (var i = 0; i < WARMUP_RUNS; i++) {
+            new ParallelBreadthFirstSearch(maxThreads).solve(initialState);
+        }
+
+        System.out.printf("%8s %14s %10s %8s%n", "threads", "nodes/sec", "time (ms)", "speedup");
+        var baseline = 0.0;
+        for (var threads : threadCounts(maxThreads)) {
+            var search = new ParallelBreadthFirstSearch(threads);
+            var best = Long.MAX_VALUE;
+            var expanded = 0L;
+            for (var i = 0; i < REPETITIONS; i++) {
+                var start = System.nanoTime();
+                var solution = search.solve(initialState).orElseThrow();
+                best = Math.min(best, System.nanoTime() - start);
+                expanded = solution.expanded();
+            }
+            var nodesPerSecond = expanded * 1e9 / best;
+            if (baseline == 0.0) {
+                baseline = nodesPerSecond;
+            }
+            System.out.printf("%8d %14.0f %10.1f %8.2f%n", threads, nodesPerSecond, best / 1e6, nodesPerSecond / baseline);
+        }
+    }
+
+    private static List<Integer> threadCounts(int maxThreads) {
+        var counts = new ArrayList<Integer>();
+        for (var threads = 1; threads < maxThreads; threads <<= 1) {
+            counts.add(threads);
+        }
+        counts.add(maxThreads);
+        return counts;
+    }
+
+}
@@ -0,0 +1,43 @@
+package sokoban.solver;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning a whole search, committed when the search ends.
+ */
+@Name("sokoban.Search")
+@Label("Search")
+@Category("Sokoban")
+@Description("A search for the solution of a level")
+class SearchEvent extends jdk.jfr.Event {
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Solved")
+    boolean solved;
+
+    @Label("Expanded")
+    long expanded;
+
+    @Label("Generated")
+    long generated;
+
+    @Label("Duplicates")
+    long duplicates;
+
+    @Label("Visited Size")
+    long visitedSize;
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Heap Used")
+    @DataAmount
+    long heapUsed;
+
+}
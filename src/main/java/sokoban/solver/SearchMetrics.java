@@ -0,0 +1,233 @@
+package sokoban.solver;
+
+import jdk.jfr.FlightRecorder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live counters of a search, so a long search can be watched while it runs.
+ * <p>
+ * Every solver keeps one instance, available through its {@code getMetrics()} method,
+ * which follows one search at a time.
+ * While a search runs, its counters are registered with the platform MBean server as
+ * {@code sokoban.solver:type=Search,algorithm=<name>,id=<n>}, sampled by the
+ * {@code sokoban.SearchProgress} Flight Recorder event once a second, and the whole
+ * search is recorded by a {@code sokoban.Search} event when it ends.
+ * <p>
+ * A search publishes its counters once per expansion with ordered writes, which cost
+ * no more than plain writes on common hardware, so the counters can be read from
+ * other threads at any time without slowing the search down.
+ */
+public final class SearchMetrics implements SearchMetricsMXBean {
+
+    private static final List<SearchMetrics> RUNNING = new CopyOnWriteArrayList<>();
+
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    static {
+        FlightRecorder.addPeriodicEvent(SearchProgressEvent.class, () -> {
+            for (var metrics : RUNNING) {
+                metrics.emitProgress();
+            }
+        });
+    }
+
+    private final String algorithm;
+
+    private final AtomicLong expanded = new AtomicLong();
+
+    private final AtomicLong generated = new AtomicLong();
+
+    private final AtomicLong duplicates = new AtomicLong();
+
+    private final AtomicLong frontierSize = new AtomicLong();
+
+    private final AtomicLong visitedSize = new AtomicLong();
+
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private volatile long startNanos;
+
+    private volatile long endNanos;
+
+    private volatile boolean running;
+
+    private ObjectName name;
+
+    private SearchEvent event;
+
+    /**
+     * Creates the counters of a search.
+     *
+     * @param algorithm the name of the algorithm of the search
+     */
+    public SearchMetrics(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * {@return the counters of the searches running at the moment}
+     */
+    public static List<SearchMetrics> running() {
+        return List.copyOf(RUNNING);
+    }
+
+    /**
+     * Resets the counters and publishes them, to be called when a search starts.
+     */
+    void begin() {
+        update(0, 0, 0, 0, 0, 0);
+        startNanos = System.nanoTime();
+        endNanos = 0;
+        running = true;
+        RUNNING.add(this);
+        try {
+            name = new ObjectName("sokoban.solver:type=Search,algorithm=" + ObjectName.quote(algorithm)
+                    + ",id=" + IDS.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        } catch (JMException e) {
+            name = null;
+        }
+        event = new SearchEvent();
+        event.begin();
+    }
+
+    /**
+     * Publishes the counters of the search.
+     *
+     * @param expanded the number of states expanded
+     * @param generated the number of successor states generated
+     * @param duplicates the number of generated states that had already been reached
+     * @param frontierSize the number of states waiting to be expanded
+     * @param visitedSize the number of states visited
+     * @param depth the deepest level reached
+     */
+    void update(long expanded, long generated, long duplicates, long frontierSize, long visitedSize, int depth) {
+        this.expanded.lazySet(expanded);
+        this.generated.lazySet(generated);
+        this.duplicates.lazySet(duplicates);
+        this.frontierSize.lazySet(frontierSize);
+        this.visitedSize.lazySet(visitedSize);
+        this.depth.lazySet(depth);
+    }
+
+    /**
+     * Records the end of the search, whether it was solved or gave up.
+     *
+     * @param solution the solution found, whose statistics are the final counts of the search
+     */
+    void end(Optional<Solution> solution) {
+        solution.ifPresent(found -> {
+            expanded.set(found.expanded());
+            generated.set(found.generated());
+        });
+        endNanos = System.nanoTime();
+        running = false;
+        RUNNING.remove(this);
+        if (name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch (JMException e) {
+                // Somebody else unregistered it, which leaves nothing to clean up.
+            }
+            name = null;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.algorithm = algorithm;
+            event.solved = solution.isPresent();
+            event.expanded = getExpanded();
+            event.generated = getGenerated();
+            event.duplicates = getDuplicates();
+            event.visitedSize = getVisitedSize();
+            event.depth = getDepth();
+            event.heapUsed = getHeapUsed();
+            event.commit();
+        }
+        event = null;
+    }
+
+    private void emitProgress() {
+        var progress = new SearchProgressEvent();
+        progress.algorithm = algorithm;
+        progress.expanded = getExpanded();
+        progress.generated = getGenerated();
+        progress.duplicates = getDuplicates();
+        progress.frontierSize = getFrontierSize();
+        progress.visitedSize = getVisitedSize();
+        progress.depth = getDepth();
+        progress.nodesPerSecond = getNodesPerSecond();
+        progress.heapUsed = getHeapUsed();
+        progress.commit();
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public long getExpanded() {
+        return expanded.get();
+    }
+
+    @Override
+    public long getGenerated() {
+        return generated.get();
+    }
+
+    @Override
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    @Override
+    public long getFrontierSize() {
+        return frontierSize.get();
+    }
+
+    @Override
+    public long getVisitedSize() {
+        return visitedSize.get();
+    }
+
+    @Override
+    public int getDepth() {
+        return depth.get();
+    }
+
+    @Override
+    public long getNodesPerSecond() {
+        var start = startNanos;
+        if (start == 0) {
+            return 0;
+        }
+        var elapsed = (running ? System.nanoTime() : endNanos) - start;
+        return elapsed <= 0 ? 0 : (long) (getExpanded() * 1e9 / elapsed);
+    }
+
+    @Override
+    public long getHeapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d expanded, %d generated, %d duplicates, %d in frontier, %d visited, depth %d, %d nodes/sec",
+                algorithm, getExpanded(), getGenerated(), getDuplicates(), getFrontierSize(), getVisitedSize(),
+                getDepth(), getNodesPerSecond());
+    }
+
+}
@@ -0,0 +1,59 @@
+package sokoban.solver;
+
+/**
+ * Management interface of the counters of a search, registered with the platform
+ * MBean server while the search runs.
+ */
+public interface SearchMetricsMXBean {
+
+    /**
+     * {@return the name of the algorithm of the search}
+     */
+    String getAlgorithm();
+
+    /**
+     * {@return whether the search is running}
+     */
+    boolean isRunning();
+
+    /**
+     * {@return the number of states expanded so far}
+     */
+    long getExpanded();
+
+    /**
+     * {@return the number of successor states generated so far}
+     */
+    long getGenerated();
+
+    /**
+     * {@return the number of generated states that had already been reached}
+     */
+    long getDuplicates();
+
+    /**
+     * {@return the number of states waiting to be expanded, or on the current path of a depth-first search}
+     */
+    long getFrontierSize();
+
+    /**
+     * {@return the number of states visited so far}
+     */
+    long getVisitedSize();
+
+    /**
+     * {@return the deepest level of the search reached so far, in moves or pushes}
+     */
+    int getDepth();
+
+    /**
+     * {@return the number of states expanded per second since the search started}
+     */
+    long getNodesPerSecond();
+
+    /**
+     * {@return the number of bytes used on the heap of the JVM}
+     */
+    long getHeapUsed();
+
+}
@@ -0,0 +1,50 @@
+package sokoban.solver;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event sampling the counters of every running search, once a second by default.
+ */
+@Name("sokoban.SearchProgress")
+@Label("Search Progress")
+@Category("Sokoban")
+@Description("The counters of a running search")
+@Period("1 s")
+@StackTrace(false)
+class SearchProgressEvent extends jdk.jfr.Event {
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Expanded")
+    long expanded;
+
+    @Label("Generated")
+    long generated;
+
+    @Label("Duplicates")
+    long duplicates;
+
+    @Label("Frontier Size")
+    long frontierSize;
+
+    @Label("Visited Size")
+    long visitedSize;
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Nodes per Second")
+    long nodesPerSecond;
+
+    @Label("Heap Used")
+    @DataAmount
+    long heapUsed;
+
+}
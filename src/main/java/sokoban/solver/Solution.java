@@ -0,0 +1,39 @@
+package sokoban.solver;
+
+import sokoban.state.Direction;
+
+import java.util.List;
+
+/**
+ * Represents a solution found by a solver together with the search statistics.
+ *
+ * @param moves the moves leading from the initial state to a solved state
+ * @param expanded the number of states whose successors were generated
+ * @param generated the number of successor states generated
+ */
+public record Solution(List<Direction> moves, long expanded, long generated) {
+
+    /**
+     * Creates a solution with an unmodifiable copy of the moves given.
+     *
+     * @param moves the moves leading from the initial state to a solved state
+     * @param expanded the number of states whose successors were generated
+     * @param generated the number of successor states generated
+     */
+    public Solution {
+        moves = List.copyOf(moves);
+    }
+
+    /**
+     * {@return the number of moves in the solution}
+     */
+    public int length() {
+        return moves.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d moves, %d expanded, %d generated: %s", moves.size(), expanded, generated, moves);
+    }
+
+}
@@ -0,0 +1,280 @@
+package sokoban.solver;
+
+import sokoban.state.Direction;
+import sokoban.state.PackedState;
+import sokoban.state.Position;
+import sokoban.state.SokobanState;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache of solutions on disk, with the most recently used ones also kept in memory.
+ * <p>
+ * A level is identified by its fingerprint, a SHA-256 digest of the board together with
+ * the initial positions of the player and the boxes, boxes being interchangeable. Each
+ * solution is stored in a file of its own named after the fingerprint and the
+ * {@link Objective} of the search, holding the moves at two bits each, so the solution of
+ * a hundred moves takes 30 bytes. Solutions read from disk are replayed before they are
+ * used, so a damaged file is only a cache miss. Levels found unsolvable are not cached,
+ * since there is no such check for them and a wrong entry would hide a solvable level.
+ * <p>
+ * The cache may be shared between threads, and between processes using the same directory.
+ */
+public class SolutionCache {
+
+    /**
+     * What the solutions of a search are optimal for, as solutions with the fewest moves
+     * and solutions with the fewest pushes are cached separately.
+     */
+    public enum Objective {
+        /** The solution has the fewest moves. */
+        MOVES,
+        /** The solution has the fewest pushes. */
+        PUSHES
+    }
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Path directory;
+
+    private final LinkedHashMap<String, List<Direction>> recent;
+
+    private final LongAdder memoryHits = new LongAdder();
+
+    private final LongAdder diskHits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache.
+     *
+     * @param directory the directory of the cache, created if it does not exist
+     * @param capacity the number of solutions kept in memory
+     * @throws IOException if the directory cannot be created
+     */
+    public SolutionCache(Path directory, int capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive.");
+        }
+        this.directory = Files.createDirectories(directory);
+        recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<String, List<Direction>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Computes the fingerprint of a level from its initial state.
+     *
+     * @param state the initial state of the level
+     * @return the fingerprint as 64 hexadecimal digits
+     */
+    public static String fingerprint(SokobanState state) {
+        var board = state.getBoard();
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeInt(board.height());
+            out.writeInt(board.width());
+            for (var row = 0; row < board.height(); row++) {
+                for (var col = 0; col < board.width(); col++) {
+                    out.writeChar(board.getPosition(row, col));
+                }
+            }
+            var player = state.getPosition(SokobanState.PLAYER_POSITION);
+            out.writeInt(player.row());
+            out.writeInt(player.col());
+            var boxes = new ArrayList<Position>();
+            for (var i = SokobanState.FIRST_BOX_POSITION; i <= state.getBoxCount(); i++) {
+                boxes.add(state.getPosition(i));
+            }
+            boxes.sort(Comparator.comparingInt(Position::row).thenComparingInt(Position::col));
+            for (var box : boxes) {
+                out.writeInt(box.row());
+                out.writeInt(box.col());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update("sokoban-level".getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest.digest(bytes.toByteArray()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+
+    /**
+     * Returns the cached solution of a state, or searches for one and caches it.
+     * Solutions taken from the cache report no expanded nor generated states, and a state
+     * found unsolvable is searched again every time.
+     *
+     * @param initialState the state to be solved
+     * @param objective what the solutions of the search are optimal for
+     * @param search the search run on a cache miss
+     * @return the solution, or an empty optional if the state cannot be solved
+     * @throws UncheckedIOException if the solution found cannot be written to disk
+     */
+    public Optional<Solution> solve(PackedState initialState, Objective objective,
+                                    Function<PackedState, Optional<Solution>> search) {
+        var key = fingerprint(initialState.toSokobanState()) + "." + objective.name().toLowerCase();
+        var cached = lookup(key, initialState);
+        if (cached != null) {
+            return Optional.of(new Solution(cached, 0, 0));
+        }
+        misses.increment();
+        var solution = search.apply(initialState);
+        solution.ifPresent(found -> store(key, found.moves()));
+        return solution;
+    }
+
+    private List<Direction> lookup(String key, PackedState initialState) {
+        synchronized (recent) {
+            var moves = recent.get(key);
+            if (moves != null) {
+                memoryHits.increment();
+                return moves;
+            }
+        }
+        var moves = read(directory.resolve(key));
+        if (moves == null || !solves(initialState, moves)) {
+            return null;
+        }
+        diskHits.increment();
+        synchronized (recent) {
+            recent.put(key, moves);
+        }
+        return moves;
+    }
+
+    private void store(String key, List<Direction> moves) {
+        synchronized (recent) {
+            recent.put(key, moves);
+        }
+        var file = directory.resolve(key);
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(directory, key, ".tmp");
+            Files.write(temporary, encode(moves));
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException e) {
+                    // Only a stray file is left behind, which lookups never read.
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes a solution as a version byte, the number of moves as an int and the moves
+     * themselves, four to a byte.
+     */
+    private static byte[] encode(List<Direction> moves) {
+        var buffer = ByteBuffer.allocate(5 + (moves.size() + 3) / 4);
+        buffer.put((byte) FORMAT_VERSION);
+        buffer.putInt(moves.size());
+        var packed = new byte[(moves.size() + 3) / 4];
+        for (var i = 0; i < moves.size(); i++) {
+            packed[i >> 2] |= (byte) (moves.get(i).ordinal() << ((i & 3) << 1));
+        }
+        return buffer.put(packed).array();
+    }
+
+    /**
+     * Reads a solution file, returning {@code null} if it is missing or cannot be decoded.
+     */
+    private static List<Direction> read(Path file) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (bytes.length < 5 || bytes[0] != FORMAT_VERSION) {
+            return null;
+        }
+        var count = ByteBuffer.wrap(bytes, 1, 4).getInt();
+        if (count < 0 || bytes.length != 5 + (count + 3) / 4) {
+            return null;
+        }
+        var moves = new Direction[count];
+        for (var i = 0; i < count; i++) {
+            moves[i] = DIRECTIONS[(bytes[5 + (i >> 2)] >> ((i & 3) << 1)) & 3];
+        }
+        return Arrays.asList(moves);
+    }
+
+    private static boolean solves(PackedState initialState, List<Direction> moves) {
+        var state = initialState.clone();
+        for (var direction : moves) {
+            if (!state.isLegalMove(direction)) {
+                return false;
+            }
+            state.makeMove(direction);
+        }
+        return state.isSolved();
+    }
+
+    /**
+     * {@return the number of lookups answered from memory}
+     */
+    public long getMemoryHits() {
+        return memoryHits.sum();
+    }
+
+    /**
+     * {@return the number of lookups answered from disk}
+     */
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    /**
+     * {@return the number of lookups that needed a search}
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d memory hits, %d disk hits, %d misses", getMemoryHits(), getDiskHits(), getMisses());
+    }
+
+}
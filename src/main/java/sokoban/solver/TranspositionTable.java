@@ -0,0 +1,116 @@
+package sokoban.solver;
+
+import sokoban.state.PackedState;
+
+/**
+ * Fixed-size table remembering the lowest cost at which packed states were reached.
+ * The table never grows, a new entry simply replaces the one stored in its slot,
+ * so losing an entry only costs some pruning, never correctness.
+ * The keys are laid out for the number of words of the states stored; a state with
+ * another number of words, such as a state of another level, makes the table forget
+ * its entries and lay its keys out again.
+ */
+public class TranspositionTable {
+
+    private final int mask;
+
+    private int words;
+
+    private long[] keys;
+
+    private final int[] costs;
+
+    private final int[] generations;
+
+    private int generation = 1;
+
+    private int size;
+
+    /**
+     * Creates a table with at least the specified number of entries.
+     *
+     * @param capacity the requested number of entries, rounded up to a power of two
+     */
+    public TranspositionTable(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30.");
+        }
+        var size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        costs = new int[size];
+        generations = new int[size];
+    }
+
+    /**
+     * {@return the number of entries of the table}
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * {@return the number of entries in use}
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Forgets every entry of the table in constant time.
+     */
+    public void clear() {
+        generation++;
+        size = 0;
+    }
+
+    /**
+     * Checks whether the state was already reached at no higher cost, and records the
+     * cost otherwise.
+     *
+     * @param state the state reached
+     * @param cost the number of moves made to reach the state
+     * @return true if the state was reached before at a cost not higher than the one given
+     */
+    public boolean isReachedCheaper(PackedState state, int cost) {
+        if (keys == null || words != state.getWordCount()) {
+            words = state.getWordCount();
+            keys = new long[(mask + 1) * words];
+            clear();
+        }
+        var slot = mix(state) & mask;
+        var base = slot * words;
+        if (generations[slot] == generation && matches(state, base)) {
+            if (costs[slot] <= cost) {
+                return true;
+            }
+        } else {
+            if (generations[slot] != generation) {
+                size++;
+            }
+            for (var i = 0; i < words; i++) {
+                keys[base + i] = state.getWord(i);
+            }
+            generations[slot] = generation;
+        }
+        costs[slot] = cost;
+        return false;
+    }
+
+    private boolean matches(PackedState state, int base) {
+        for (var i = 0; i < words; i++) {
+            if (keys[base + i] != state.getWord(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(PackedState state) {
+        var hash = state.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+}
@@ -0,0 +1,245 @@
+package sokoban.state;
+
+import java.util.Arrays;
+
+/**
+ * A set of cells of a {@link Map}, one bit per cell index packed into {@code long} words.
+ * <p>
+ * Set operations work a word at a time, and moving every cell of the set one square in
+ * a direction is a shift by the {@linkplain Map#offset(Direction) offset} of the
+ * direction, so a flood fill over the whole board takes a few word operations per step
+ * however many boxes are on it. The operations change the bitboard in place, so the
+ * engine can reuse bitboards instead of allocating new ones.
+ */
+public final class Bitboard {
+
+    private final int size;
+
+    private final long[] words;
+
+    /**
+     * Creates an empty bitboard.
+     *
+     * @param size the number of cells, usually {@link Map#cellCount()}
+     */
+    public Bitboard(int size) {
+        this.size = size;
+        this.words = new long[(size + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    private Bitboard(int size, long[] words) {
+        this.size = size;
+        this.words = words;
+    }
+
+    /**
+     * {@return a copy of this bitboard}
+     */
+    public Bitboard copy() {
+        return new Bitboard(size, words.clone());
+    }
+
+    /**
+     * {@return the number of cells of the bitboard}
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param cell the index of a cell.
+     * @return true if the cell is in the set.
+     */
+    public boolean get(int cell) {
+        return (words[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Adds a cell to the set.
+     *
+     * @param cell the index of the cell.
+     */
+    public void set(int cell) {
+        words[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * Removes a cell from the set.
+     *
+     * @param cell the index of the cell.
+     */
+    public void clear(int cell) {
+        words[cell >>> 6] &= ~(1L << cell);
+    }
+
+    /**
+     * Replaces the cells of this set by the cells of another one.
+     *
+     * @param other a bitboard of the same size.
+     */
+    public void assign(Bitboard other) {
+        System.arraycopy(other.words, 0, words, 0, words.length);
+    }
+
+    /**
+     * Keeps only the cells that are also in another set.
+     *
+     * @param other a bitboard of the same size.
+     */
+    public void and(Bitboard other) {
+        for (var i = 0; i < words.length; i++) {
+            words[i] &= other.words[i];
+        }
+    }
+
+    /**
+     * Adds the cells of another set.
+     *
+     * @param other a bitboard of the same size.
+     */
+    public void or(Bitboard other) {
+        for (var i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * Removes the cells of another set.
+     *
+     * @param other a bitboard of the same size.
+     */
+    public void andNot(Bitboard other) {
+        for (var i = 0; i < words.length; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    /**
+     * Adds the cells of another set, each moved by the same number of cells.
+     * Cells moved past either end of the board are dropped.
+     *
+     * @param other a bitboard of the same size.
+     * @param shift the number added to every cell index, may be negative.
+     */
+    public void orShifted(Bitboard other, int shift) {
+        var source = other.words;
+        var last = words.length - 1;
+        if (shift >= 0) {
+            var wordShift = shift >>> 6;
+            var bitShift = shift & 63;
+            for (var i = last; i >= wordShift; i--) {
+                var word = source[i - wordShift] << bitShift;
+                if (bitShift != 0 && i - wordShift > 0) {
+                    word |= source[i - wordShift - 1] >>> (Long.SIZE - bitShift);
+                }
+                words[i] |= word;
+            }
+        } else {
+            var wordShift = -shift >>> 6;
+            var bitShift = -shift & 63;
+            for (var i = 0; i + wordShift <= last; i++) {
+                var word = source[i + wordShift] >>> bitShift;
+                if (bitShift != 0 && i + wordShift < last) {
+                    word |= source[i + wordShift + 1] << (Long.SIZE - bitShift);
+                }
+                words[i] |= word;
+            }
+        }
+        if ((size & 63) != 0) {
+            words[last] &= (1L << size) - 1;
+        }
+    }
+
+    /**
+     * Grows the set, in place, to every cell of an open area connected to it by steps of
+     * the specified offsets. The cells of the set are expected to be open themselves.
+     *
+     * @param open the cells that can be stepped on.
+     * @param offsets the steps, usually the {@linkplain Map#offset(Direction) offsets} of the directions.
+     */
+    public void flood(Bitboard open, int... offsets) {
+        var previous = new Bitboard(size);
+        while (!equals(previous)) {
+            previous.assign(this);
+            for (var offset : offsets) {
+                orShifted(previous, offset);
+            }
+            and(open);
+        }
+    }
+
+    /**
+     * {@return true if the set has no cells}
+     */
+    public boolean isEmpty() {
+        for (var word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param other a bitboard of the same size.
+     * @return true if every cell of the other set is in this set.
+     */
+    public boolean containsAll(Bitboard other) {
+        for (var i = 0; i < words.length; i++) {
+            if ((other.words[i] & ~words[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param from the index of the first cell to look at.
+     * @return the index of the first cell of the set from the one given, or -1 if there is none.
+     */
+    public int nextSetBit(int from) {
+        var i = from >>> 6;
+        if (i >= words.length) {
+            return -1;
+        }
+        var word = words[i] & (-1L << from);
+        while (word == 0) {
+            if (++i == words.length) {
+                return -1;
+            }
+            word = words[i];
+        }
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * {@return the number of cells of the set}
+     */
+    public int cardinality() {
+        var count = 0;
+        for (var word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Bitboard other && size == other.size && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        var sb = new StringBuilder("{");
+        for (var cell = nextSetBit(0); cell != -1; cell = nextSetBit(cell + 1)) {
+            sb.append(sb.length() > 1 ? ", " : "").append(cell);
+        }
+        return sb.append('}').toString();
+    }
+
+}
@@ -11,6 +11,8 @@ public enum Direction {
     DOWN(1, 0),
     LEFT(0, -1);
 
+    private static final Direction[] VALUES = values();
+
     private final int rowChange;
     private final int colChange;
 
@@ -40,6 +42,33 @@ public enum Direction {
         return colChange;
     }
 
+    /**
+     * {@return the direction pointing the opposite way}
+     */
+    public Direction opposite() {
+        return of(-rowChange, -colChange);
+    }
+
+    /**
+     * {@return the bit of the direction in a mask of moves, as returned by
+     * {@link SokobanState#getLegalMoveMask()}}
+     */
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Returns the direction of the lowest bit of a mask of moves, so the directions of
+     * a mask can be visited without allocating:
+     * {@code for (var moves = mask; moves != 0; moves &= moves - 1) { var direction = Direction.fromMask(moves); }}
+     *
+     * @param mask a mask of moves, not zero
+     * @return the direction of the lowest bit set
+     */
+    public static Direction fromMask(int mask) {
+        return VALUES[Integer.numberOfTrailingZeros(mask)];
+    }
+
     /**
      * {@return the direction that corresponds to the coordinate changes specified}
      *
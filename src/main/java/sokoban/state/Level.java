@@ -0,0 +1,221 @@
+package sokoban.state;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A level of the game: a board together with the initial positions of the player and the boxes.
+ * <p>
+ * Levels are read from the standard XSB text format, also used by {@code .sok} files:
+ * {@code #} is a wall, {@code @} the player, {@code $} a box, {@code .} a target,
+ * {@code +} the player and {@code *} a box on a target, while spaces, {@code -} and
+ * {@code _} are floor. The rows of a level may have different lengths. Squares the player
+ * could never get to, even by pushing boxes around, are outside the board. Any other line
+ * separates levels, and the first one before a level, or a {@code Title:} line right after
+ * it, names the level.
+ *
+ * @param name the name of the level
+ * @param board the board of the level
+ * @param positions the initial positions of the player and the boxes, the player comes first
+ */
+public record Level(String name, Map board, List<Position> positions) {
+
+    private static final String BOARD_CHARACTERS = "#@+$*.-_ ";
+
+    private static final String TITLE = "Title:";
+
+    /**
+     * Creates a level.
+     *
+     * @throws IllegalArgumentException if the number of boxes differs from the number of targets
+     */
+    public Level {
+        positions = List.copyOf(positions);
+        var targets = board.getTargets().size();
+        if (positions.size() < 2 || positions.size() - 1 != targets) {
+            throw new IllegalArgumentException("The level has " + (positions.size() - 1) + " boxes but "
+                    + targets + " targets.");
+        }
+    }
+
+    /**
+     * {@return the level built into the game}
+     */
+    public static Level builtIn() {
+        return new Level("Built-in", SokobanState.board, List.of(new Position(1, 1),
+                new Position(2, 2), new Position(3, 2), new Position(2, 3)));
+    }
+
+    /**
+     * {@return the number of boxes of the level}
+     */
+    public int getBoxCount() {
+        return positions.size() - 1;
+    }
+
+    /**
+     * Creates the initial state of the level.
+     *
+     * @return a new state with the initial positions of the level
+     */
+    public SokobanState createState() {
+        return new SokobanState(board, positions.toArray(Position[]::new));
+    }
+
+    /**
+     * Reads every level of an XSB file.
+     *
+     * @param path the file to read
+     * @return the levels of the file, in order
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a level is not valid
+     */
+    public static List<Level> load(Path path) throws IOException {
+        return parseAll(Files.readString(path));
+    }
+
+    /**
+     * Reads a single level in XSB format.
+     *
+     * @param text the text of the level
+     * @return the level read
+     * @throws IllegalArgumentException if the text does not hold exactly one valid level
+     */
+    public static Level parse(String text) {
+        var levels = parseAll(text);
+        if (levels.size() != 1) {
+            throw new IllegalArgumentException("Exactly one level is required, found " + levels.size() + ".");
+        }
+        return levels.get(0);
+    }
+
+    /**
+     * Reads every level of a text in XSB format.
+     *
+     * @param text the text of the levels
+     * @return the levels read, in order
+     * @throws IllegalArgumentException if a level is not valid
+     */
+    public static List<Level> parseAll(String text) {
+        var levels = new ArrayList<Level>();
+        var rows = new ArrayList<String>();
+        String name = null;
+        var afterLevel = false;
+        for (var line : text.split("\\R")) {
+            if (isBoardLine(line)) {
+                rows.add(line);
+                continue;
+            }
+            if (!rows.isEmpty()) {
+                levels.add(fromRows(name != null ? name : "Level " + (levels.size() + 1), rows));
+                rows.clear();
+                name = null;
+                afterLevel = true;
+            }
+            var trimmed = line.strip();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (afterLevel && trimmed.regionMatches(true, 0, TITLE, 0, TITLE.length())) {
+                var last = levels.get(levels.size() - 1);
+                levels.set(levels.size() - 1, new Level(nameOf(trimmed), last.board(), last.positions()));
+            } else if (name == null) {
+                name = nameOf(trimmed);
+            }
+            afterLevel = false;
+        }
+        if (!rows.isEmpty()) {
+            levels.add(fromRows(name != null ? name : "Level " + (levels.size() + 1), rows));
+        }
+        return levels;
+    }
+
+    private static boolean isBoardLine(String line) {
+        if (line.indexOf('#') == -1) {
+            return false;
+        }
+        for (var i = 0; i < line.length(); i++) {
+            if (BOARD_CHARACTERS.indexOf(line.charAt(i)) == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String nameOf(String line) {
+        if (line.regionMatches(true, 0, TITLE, 0, TITLE.length())) {
+            return line.substring(TITLE.length()).strip();
+        }
+        return line.replaceFirst("^;+", "").strip();
+    }
+
+    private static Level fromRows(String name, List<String> rows) {
+        var height = rows.size();
+        var width = rows.stream().mapToInt(String::length).max().orElseThrow();
+        var squares = new char[height][width];
+        Position player = null;
+        for (var row = 0; row < height; row++) {
+            var line = rows.get(row);
+            for (var col = 0; col < width; col++) {
+                squares[row][col] = col < line.length() ? line.charAt(col) : ' ';
+                if (squares[row][col] == '@' || squares[row][col] == '+') {
+                    if (player != null) {
+                        throw new IllegalArgumentException("Level " + name + " has more than one player.");
+                    }
+                    player = new Position(row, col);
+                }
+            }
+        }
+        if (player == null) {
+            throw new IllegalArgumentException("Level " + name + " has no player.");
+        }
+
+        // Everything the player could get to if the boxes were not in the way is inside.
+        var inside = new boolean[height][width];
+        var queue = new ArrayDeque<Position>();
+        inside[player.row()][player.col()] = true;
+        queue.add(player);
+        while (!queue.isEmpty()) {
+            var position = queue.poll();
+            if (position.row() == 0 || position.row() == height - 1
+                    || position.col() == 0 || position.col() == width - 1) {
+                throw new IllegalArgumentException("Level " + name + " is not surrounded by walls.");
+            }
+            for (var direction : Direction.values()) {
+                var next = position.move(direction);
+                if (squares[next.row()][next.col()] != '#' && !inside[next.row()][next.col()]) {
+                    inside[next.row()][next.col()] = true;
+                    queue.add(next);
+                }
+            }
+        }
+
+        var board = new char[height][width];
+        var positions = new ArrayList<Position>();
+        positions.add(player);
+        for (var row = 0; row < height; row++) {
+            for (var col = 0; col < width; col++) {
+                var square = squares[row][col];
+                if (square == '#') {
+                    board[row][col] = SokobanState.WALL;
+                } else if (!inside[row][col]) {
+                    if (square == '$' || square == '*') {
+                        throw new IllegalArgumentException("Level " + name + " has a box outside the walls.");
+                    }
+                    board[row][col] = SokobanState.OUT_OF_BOARD;
+                } else {
+                    board[row][col] = square == '.' || square == '*' || square == '+' ? SokobanState.TARGET : ' ';
+                    if (square == '$' || square == '*') {
+                        positions.add(new Position(row, col));
+                    }
+                }
+            }
+        }
+        return new Level(name, new Map(board), positions);
+    }
+
+}
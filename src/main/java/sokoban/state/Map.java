@@ -1,22 +1,89 @@
 package sokoban.state;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
 
 /**
  * Represents the board of the game.
+ * <p>
+ * The squares are kept in a single byte array, row by row, surrounded by a one cell wide
+ * border of positions outside the board. Every square has a cell index, and every
+ * neighbor of a square on the board is a valid cell too, so the engine can walk the board
+ * by adding the {@linkplain #offset(Direction) offset} of a direction to a cell without
+ * bounds checks, boxing or creating {@link Position} records. The floor, the targets
+ * and the squares that are not dead are also available as {@link Bitboard}s. The methods
+ * taking coordinates are kept for the user interface and the tests.
  */
 public class Map {
 
     /**
-     *  Represents the game board.
+     * The push distance of a box that cannot be pushed to a target at all.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final long ZOBRIST_SEED = 0x5EED_50C0_BA11L;
+
+    private final int height;
+
+    private final int width;
+
+    /**
+     * The number of cells in a row, the width of the board and the two border cells.
+     */
+    private final int stride;
+
+    /**
+     * The squares of the board, row by row, with the border.
+     */
+    private final byte[] squares;
+
+    private final int[] offsets;
+
+    /**
+     * The positions of every cell, created once so the engine never creates positions while moving.
+     */
+    private final Position[] positions;
+
+    private final Position[] targets;
+
+    /**
+     * The push distances of every target, one block of {@link #cellCount()} entries per target.
+     */
+    private final int[] pushDistances;
+
+    /**
+     * The push distance to the nearest target of every cell.
+     */
+    private final int[] nearestTargetDistances;
+
+    private final boolean[] deadSquares;
+
+    private final long[] playerKeys;
+
+    private final long[] boxKeys;
+
+    /**
+     * The floor cells, shared with the engine, which must not modify it.
      */
-    public Character[][] board;
+    final Bitboard floorBits;
+
+    private final Bitboard targetBits;
+
+    /**
+     * The floor cells that are not dead squares, shared with the engine, which must not modify it.
+     */
+    final Bitboard liveBits;
 
     /**
      * Constructs a Map instance and initializes the board with a predefined layout.
      * The layout is represented as a 2D array of characters.
      */
     public Map() {
-        board= new Character[][]{
+        this(new char[][]{
                 {'#', '#', '#', '#', '#', '-', '-', '-', '-'},
                 {'#', ' ', ' ', ' ', '#', '-', '-', '-', '-'},
                 {'#', ' ', ' ', ' ', '#', '-', '#', '#', '#'},
@@ -26,22 +93,427 @@ public class Map {
                 {'-', '#', ' ', ' ', ' ', '#', ' ', ' ', '#'},
                 {'-', '#', ' ', ' ', ' ', '#', '#', '#', '#'},
                 {'-', '#', '#', '#', '#', '#', '-', '-', '-'},
-        };
+        });
+    }
+
+    /**
+     * Constructs a Map instance with the specified layout, as read by {@link Level}.
+     *
+     * @param board the rows of the board, all of the same length, made of walls,
+     *              floor, targets and positions outside the board.
+     * @throws IllegalArgumentException if the board is empty or not rectangular.
+     */
+    public Map(char[][] board) {
+        if (board.length == 0 || board[0].length == 0) {
+            throw new IllegalArgumentException("The board cannot be empty.");
+        }
+        height = board.length;
+        width = board[0].length;
+        stride = width + 2;
+        squares = new byte[stride * (height + 2)];
+        Arrays.fill(squares, (byte) SokobanState.OUT_OF_BOARD);
+        for (var x = 0; x < height; x++) {
+            if (board[x].length != width) {
+                throw new IllegalArgumentException("The rows of the board must have the same length.");
+            }
+            for (var y = 0; y < width; y++) {
+                squares[cellOf(x, y)] = (byte) board[x][y];
+            }
+        }
+        offsets = new int[Direction.values().length];
+        for (var direction : Direction.values()) {
+            offsets[direction.ordinal()] = direction.getRowChange() * stride + direction.getColChange();
+        }
+        positions = new Position[squares.length];
+        for (var cell = 0; cell < squares.length; cell++) {
+            positions[cell] = new Position(rowOf(cell), colOf(cell));
+        }
+        targets = findTargets();
+        pushDistances = computePushDistances();
+        nearestTargetDistances = computeNearestTargetDistances();
+        deadSquares = findDeadSquares();
+        floorBits = new Bitboard(squares.length);
+        targetBits = new Bitboard(squares.length);
+        liveBits = new Bitboard(squares.length);
+        for (var cell = 0; cell < squares.length; cell++) {
+            if (isFloor(cell)) {
+                floorBits.set(cell);
+            }
+            if (isTarget(cell)) {
+                targetBits.set(cell);
+            }
+            if (isFloor(cell) && !deadSquares[cell]) {
+                liveBits.set(cell);
+            }
+        }
+        var random = new SplittableRandom(ZOBRIST_SEED);
+        playerKeys = randomKeys(random);
+        boxKeys = randomKeys(random);
     }
 
     /**
-     * @return the size of the board.
+     * @return the number of columns of the board.
      */
     public int width() {
-        return board.length;
+        return width;
+    }
+
+    /**
+     * @return the number of rows of the board.
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * @return the number of cells, the squares of the board and the border around them.
+     */
+    public int cellCount() {
+        return squares.length;
+    }
+
+    /**
+     * @param x the x-coordinate of the position, from -1 to {@link #height()}.
+     * @param y the y-coordinate of the position, from -1 to {@link #width()}.
+     * @return the index of the cell of the position.
+     */
+    public int cellOf(int x, int y) {
+        return (x + 1) * stride + y + 1;
+    }
+
+    /**
+     * @param cell the index of a cell.
+     * @return the x-coordinate of the cell.
+     */
+    public int rowOf(int cell) {
+        return cell / stride - 1;
+    }
+
+    /**
+     * @param cell the index of a cell.
+     * @return the y-coordinate of the cell.
+     */
+    public int colOf(int cell) {
+        return cell % stride - 1;
+    }
+
+    /**
+     * @param position a position of the board or of its border.
+     * @return the index of the cell of the position.
+     */
+    public int cellOf(Position position) {
+        return cellOf(position.row(), position.col());
+    }
+
+    /**
+     * @param direction the direction of a move.
+     * @return the number to add to a cell index to get its neighbor in the direction.
+     */
+    public int offset(Direction direction) {
+        return offsets[direction.ordinal()];
+    }
+
+    /**
+     * @param cell the index of a cell of the board.
+     * @param direction the direction of a move.
+     * @return the index of the neighbor of the cell in the direction.
+     */
+    public int neighbor(int cell, Direction direction) {
+        return cell + offsets[direction.ordinal()];
+    }
+
+    /**
+     * Returns the position of a cell. There is a single position for every cell of the map,
+     * so positions taken from the same map can be compared by reference.
+     *
+     * @param cell the index of a cell.
+     * @return the position of the cell.
+     */
+    public Position positionOf(int cell) {
+        return positions[cell];
+    }
+
+    /**
+     * @param x the x-coordinate of the position, from -1 to {@link #height()}.
+     * @param y the y-coordinate of the position, from -1 to {@link #width()}.
+     * @return the single position of the map with the coordinates given.
+     * @see #positionOf(int)
+     */
+    public Position positionAt(int x, int y) {
+        return positions[cellOf(x, y)];
+    }
+
+    /**
+     * Does what {@link Position#move(Direction)} does, without creating a new position.
+     *
+     * @param position a position of the board.
+     * @param direction the direction of the move.
+     * @return the single position of the map next to the position in the direction.
+     */
+    public Position move(Position position, Direction direction) {
+        return positions[cellOf(position) + offsets[direction.ordinal()]];
+    }
+
+    /**
+     * @param x the x-coordinate of the position.
+     * @param y the y-coordinate of the position.
+     * @return true if the position is a target the boxes have to be pushed to.
+     */
+    public boolean isTarget(int x, int y) {
+        return isTarget(cellOf(x, y));
+    }
+
+    /**
+     * @param cell the index of a cell.
+     * @return true if the cell is a target the boxes have to be pushed to.
+     */
+    public boolean isTarget(int cell) {
+        return squares[cell] == SokobanState.TARGET;
+    }
+
+    /**
+     * @param cell the index of a cell.
+     * @return true if the player and the boxes may stand on the cell, that is it is neither
+     *         a wall nor outside the board.
+     */
+    public boolean isFloor(int cell) {
+        var square = squares[cell];
+        return square != SokobanState.WALL && square != SokobanState.OUT_OF_BOARD;
+    }
+
+    /**
+     * @return the floor cells, those that are neither walls nor outside the board.
+     */
+    public Bitboard getFloorBits() {
+        return floorBits.copy();
+    }
+
+    /**
+     * @return the cells of the targets.
+     */
+    public Bitboard getTargetBits() {
+        return targetBits.copy();
+    }
+
+    /**
+     * @return the floor cells that are not {@linkplain #isDeadSquare(int) dead squares}.
+     */
+    public Bitboard getLiveBits() {
+        return liveBits.copy();
+    }
+
+    /**
+     * @return the positions of the targets, row by row.
+     */
+    public List<Position> getTargets() {
+        return List.of(targets);
+    }
+
+    /**
+     * Returns the number of pushes needed to get a box from the specified position to
+     * a target, ignoring the other boxes. The distances of every target are computed
+     * once, when the map is created.
+     *
+     * @param target the index of the target in {@link #getTargets()}.
+     * @param x the x-coordinate of the position of the box.
+     * @param y the y-coordinate of the position of the box.
+     * @return the number of pushes, or {@link #UNREACHABLE} if the box can never get to the target.
+     */
+    public int getPushDistance(int target, int x, int y) {
+        return getTargetPushDistance(target, cellOf(x, y));
+    }
+
+    /**
+     * Returns the number of pushes needed to get a box from the specified position to
+     * the nearest target, ignoring the other boxes.
+     *
+     * @param x the x-coordinate of the position of the box.
+     * @param y the y-coordinate of the position of the box.
+     * @return the number of pushes, or {@link #UNREACHABLE} if the box can never get to any target.
+     */
+    public int getPushDistance(int x, int y) {
+        return getPushDistance(cellOf(x, y));
+    }
+
+    /**
+     * @param target the index of the target in {@link #getTargets()}.
+     * @param cell the index of the cell of the box.
+     * @return the number of pushes to the target, or {@link #UNREACHABLE}.
+     * @see #getPushDistance(int, int, int)
+     */
+    public int getTargetPushDistance(int target, int cell) {
+        return pushDistances[target * squares.length + cell];
+    }
+
+    /**
+     * @param cell the index of the cell of the box.
+     * @return the number of pushes to the nearest target, or {@link #UNREACHABLE}.
+     * @see #getPushDistance(int, int)
+     */
+    public int getPushDistance(int cell) {
+        return nearestTargetDistances[cell];
     }
 
     /**
      * @param x the x-coordinate of the position.
      * @param y the y-coordinate of the position.
      * @return the value at the specified position.
+     * @throws ArrayIndexOutOfBoundsException if the position is not on the board.
+     */
+    public char getPosition(int x, int y) {
+        if (x < 0 || x >= height || y < 0 || y >= width) {
+            throw new ArrayIndexOutOfBoundsException("Position (" + x + ", " + y + ") is not on the board.");
+        }
+        return getSquare(cellOf(x, y));
+    }
+
+    /**
+     * @param cell the index of a cell.
+     * @return the value of the cell, {@link SokobanState#OUT_OF_BOARD} on the border.
+     */
+    public char getSquare(int cell) {
+        return (char) squares[cell];
+    }
+
+    /**
+     * Checks if a box on the specified position can never reach any target, even if
+     * there were no other boxes on the board.
+     *
+     * @param x the x-coordinate of the position.
+     * @param y the y-coordinate of the position.
+     * @return true if the position is a floor square from which no target can be reached.
+     */
+    public boolean isDeadSquare(int x, int y) {
+        return isDeadSquare(cellOf(x, y));
+    }
+
+    /**
+     * @param cell the index of a cell.
+     * @return true if the cell is a floor square from which no target can be reached.
+     * @see #isDeadSquare(int, int)
+     */
+    public boolean isDeadSquare(int cell) {
+        return deadSquares[cell];
+    }
+
+    /**
+     * Returns the Zobrist key of the player standing on the specified position.
+     * The hash of a state is the exclusive or of the keys of its pieces, so it can be
+     * updated incrementally as the pieces move.
+     *
+     * @param x the x-coordinate of the position.
+     * @param y the y-coordinate of the position.
+     * @return a random 64-bit key, the same for every map with the same size.
+     */
+    public long getPlayerKey(int x, int y) {
+        return playerKeys[cellOf(x, y)];
+    }
+
+    /**
+     * @param cell the index of a cell.
+     * @return the Zobrist key of the player standing on the cell.
+     * @see #getPlayerKey(int, int)
+     */
+    public long getPlayerKey(int cell) {
+        return playerKeys[cell];
+    }
+
+    /**
+     * Returns the Zobrist key of a box standing on the specified position.
+     * The key does not depend on which box it is.
+     *
+     * @param x the x-coordinate of the position.
+     * @param y the y-coordinate of the position.
+     * @return a random 64-bit key, the same for every map with the same size.
+     */
+    public long getBoxKey(int x, int y) {
+        return boxKeys[cellOf(x, y)];
+    }
+
+    /**
+     * @param cell the index of a cell.
+     * @return the Zobrist key of a box standing on the cell.
+     * @see #getBoxKey(int, int)
+     */
+    public long getBoxKey(int cell) {
+        return boxKeys[cell];
+    }
+
+    /**
+     * The keys are drawn row by row for the squares of the board only, so they do not
+     * depend on the border.
+     */
+    private long[] randomKeys(SplittableRandom random) {
+        var keys = new long[squares.length];
+        for (var x = 0; x < height; x++) {
+            var row = random.longs(width).toArray();
+            System.arraycopy(row, 0, keys, cellOf(x, 0), width);
+        }
+        return keys;
+    }
+
+    private Position[] findTargets() {
+        var found = new ArrayList<Position>();
+        for (var x = 0; x < height; x++) {
+            for (var y = 0; y < width; y++) {
+                if (isTarget(x, y)) {
+                    found.add(new Position(x, y));
+                }
+            }
+        }
+        return found.toArray(Position[]::new);
+    }
+
+    /**
+     * Pulls a box from every target in every possible way, ignoring the other boxes,
+     * a breadth-first search whose depth is the number of pushes back to the target.
+     */
+    private int[] computePushDistances() {
+        var cells = squares.length;
+        var distances = new int[targets.length * cells];
+        Arrays.fill(distances, UNREACHABLE);
+        var queue = new ArrayDeque<Integer>();
+        for (var target = 0; target < targets.length; target++) {
+            var offset = target * cells;
+            var start = cellOf(targets[target].row(), targets[target].col());
+            distances[offset + start] = 0;
+            queue.add(start);
+            while (!queue.isEmpty()) {
+                int box = queue.poll();
+                var distance = distances[offset + box];
+                for (var step : offsets) {
+                    var pulled = box + step;
+                    var player = pulled + step;
+                    if (isFloor(pulled) && isFloor(player) && distances[offset + pulled] == UNREACHABLE) {
+                        distances[offset + pulled] = distance + 1;
+                        queue.add(pulled);
+                    }
+                }
+            }
+        }
+        return distances;
+    }
+
+    private int[] computeNearestTargetDistances() {
+        var cells = squares.length;
+        var nearest = new int[cells];
+        Arrays.fill(nearest, UNREACHABLE);
+        for (var target = 0; target < targets.length; target++) {
+            for (var cell = 0; cell < cells; cell++) {
+                nearest[cell] = Math.min(nearest[cell], pushDistances[target * cells + cell]);
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * The floor squares no target can be reached from are the dead squares.
      */
-    public Character getPosition(int x, int y) {
-        return board[x][y];
+    private boolean[] findDeadSquares() {
+        var dead = new boolean[squares.length];
+        for (var cell = 0; cell < squares.length; cell++) {
+            dead[cell] = isFloor(cell) && nearestTargetDistances[cell] == UNREACHABLE;
+        }
+        return dead;
     }
 }
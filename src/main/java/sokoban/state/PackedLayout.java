@@ -0,0 +1,105 @@
+package sokoban.state;
+
+/**
+ * Describes how the cells of a {@link Map} are packed by {@link PackedState}.
+ * The cells are numbered the way the map numbers them, with a one cell wide sentinel
+ * border, so every neighbor of a floor cell is a valid index and no bounds checks are
+ * needed while moving.
+ */
+final class PackedLayout {
+
+    final Map board;
+
+    final int rows;
+
+    final int cols;
+
+    final int stride;
+
+    final int pieces;
+
+    final int bitsPerCell;
+
+    final int cellsPerWord;
+
+    final int words;
+
+    final long cellMask;
+
+    final boolean[] floor;
+
+    final boolean[] target;
+
+    final boolean[] dead;
+
+    final Bitboard floorBits;
+
+    final Bitboard liveBits;
+
+    final long[] playerKeys;
+
+    final long[] boxKeys;
+
+    final int[] offsets;
+
+    /**
+     * Creates the layout of a board for a player and the given number of boxes.
+     *
+     * @param board the board of the game
+     * @param boxes the number of boxes on the board
+     */
+    PackedLayout(Map board, int boxes) {
+        this.board = board;
+        rows = board.height();
+        cols = board.width();
+        stride = cols + 2;
+        pieces = boxes + 1;
+
+        var cells = board.cellCount();
+        bitsPerCell = 32 - Integer.numberOfLeadingZeros(cells - 1);
+        cellsPerWord = Long.SIZE / bitsPerCell;
+        words = (pieces + cellsPerWord - 1) / cellsPerWord;
+        cellMask = (1L << bitsPerCell) - 1;
+
+        floor = new boolean[cells];
+        target = new boolean[cells];
+        dead = new boolean[cells];
+        playerKeys = new long[cells];
+        boxKeys = new long[cells];
+        for (var cell = 0; cell < cells; cell++) {
+            floor[cell] = board.isFloor(cell);
+            target[cell] = board.isTarget(cell);
+            dead[cell] = board.isDeadSquare(cell);
+            playerKeys[cell] = board.getPlayerKey(cell);
+            boxKeys[cell] = board.getBoxKey(cell);
+        }
+
+        floorBits = board.floorBits;
+        liveBits = board.liveBits;
+
+        offsets = new int[Direction.values().length];
+        for (var direction : Direction.values()) {
+            offsets[direction.ordinal()] = board.offset(direction);
+        }
+    }
+
+    /**
+     * {@return the index of the cell at the specified row and column}
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     */
+    int cellOf(int row, int col) {
+        return (row + 1) * stride + col + 1;
+    }
+
+    /**
+     * {@return the position of the cell with the specified index}
+     *
+     * @param cell the index of the cell
+     */
+    Position positionOf(int cell) {
+        return board.positionOf(cell);
+    }
+
+}
@@ -0,0 +1,585 @@
+package sokoban.state;
+
+import puzzle.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+
+
+/**
+ * Represents the state of the Sokoban game in a compact form intended for the solvers.
+ * The cells of the player and the boxes are packed into a small {@code long} array,
+ * a single word for the built-in board, and all the game rules work directly on the
+ * packed words. Unlike {@link SokobanState}, it does not depend on JavaFX.
+ * <p>
+ * The boxes are kept sorted by cell, so states differing only in which box stands
+ * where are equal and have the same hash code. As a consequence, the index of a box
+ * may change after a push; the identity of the boxes is only tracked by {@link SokobanState}.
+ * <p>
+ * A 64-bit Zobrist hash built from the {@linkplain Map#getPlayerKey(int, int) keys} of
+ * the board is updated incrementally on every move, so hashing a state costs nothing.
+ */
+public class PackedState implements State<Direction> {
+
+    private static final int PLAYER = SokobanState.PLAYER_POSITION;
+
+    private final PackedLayout layout;
+
+    private final long[] words;
+
+    private long hash;
+
+    /**
+     * The number of boxes standing on a target, updated with the hash whenever a box moves.
+     */
+    private int boxesOnTargets;
+
+    /**
+     * Constructs a PackedState on the specified board.
+     *
+     * @param board the board of the game
+     * @param positions the positions of the player and the boxes, the player comes first
+     */
+    public PackedState(Map board, Position... positions) {
+        if (positions == null || positions.length < 2) {
+            throw new IllegalArgumentException("The player and at least one box are required.");
+        }
+        layout = new PackedLayout(board, positions.length - 1);
+        words = new long[layout.words];
+        for (var i = 0; i < positions.length; i++) {
+            setCell(i, cellOf(positions[i]));
+        }
+        sortBoxes();
+        hash = computeHash();
+        boxesOnTargets = countBoxesOnTargets();
+    }
+
+    private PackedState(PackedLayout layout, long[] words, long hash, int boxesOnTargets) {
+        this.layout = layout;
+        this.words = words;
+        this.hash = hash;
+        this.boxesOnTargets = boxesOnTargets;
+    }
+
+    /**
+     * Creates the packed equivalent of a {@link SokobanState}.
+     *
+     * @param state the state to be packed
+     * @return a new PackedState with the same positions as the state given
+     */
+    public static PackedState of(SokobanState state) {
+        var positions = new Position[state.getBoxCount() + 1];
+        for (var i = 0; i < positions.length; i++) {
+            positions[i] = state.getPosition(i);
+        }
+        return new PackedState(state.getBoard(), positions);
+    }
+
+    /**
+     * Creates a state on the same board with the specified positions.
+     *
+     * @param positions the positions of the player and the boxes, the player comes first
+     * @return a new PackedState sharing the layout of this state
+     */
+    public PackedState withPositions(Position... positions) {
+        if (positions.length != layout.pieces) {
+            throw new IllegalArgumentException("Exactly " + layout.pieces + " positions are required.");
+        }
+        var state = new PackedState(layout, new long[layout.words], 0, 0);
+        for (var i = 0; i < positions.length; i++) {
+            state.setCell(i, state.cellOf(positions[i]));
+        }
+        state.sortBoxes();
+        state.hash = state.computeHash();
+        state.boxesOnTargets = state.countBoxesOnTargets();
+        return state;
+    }
+
+    /**
+     * Creates a state on the same board from its packed words.
+     *
+     * @param words the words of a state on the same board, as returned by {@link #getWord(int)}
+     * @return a new PackedState sharing the layout of this state
+     */
+    public PackedState withWords(long... words) {
+        if (words.length != layout.words) {
+            throw new IllegalArgumentException("Exactly " + layout.words + " words are required.");
+        }
+        var state = new PackedState(layout, words.clone(), 0, 0);
+        state.hash = state.computeHash();
+        state.boxesOnTargets = state.countBoxesOnTargets();
+        return state;
+    }
+
+    /**
+     * Converts this state back to a {@link SokobanState}.
+     * The boxes are numbered in the order of their cells.
+     *
+     * @return a new SokobanState with the same positions as this state
+     */
+    public SokobanState toSokobanState() {
+        var positions = new Position[layout.pieces];
+        for (var i = 0; i < positions.length; i++) {
+            positions[i] = getPosition(i);
+        }
+        return new SokobanState(layout.board, positions);
+    }
+
+    private int cellOf(Position position) {
+        if (position.row() < 0 || position.row() >= layout.rows
+                || position.col() < 0 || position.col() >= layout.cols
+                || !layout.floor[layout.cellOf(position.row(), position.col())]) {
+            throw new IllegalArgumentException("Position is not on the board.");
+        }
+        return layout.cellOf(position.row(), position.col());
+    }
+
+    private int getCell(int index) {
+        var shift = (index % layout.cellsPerWord) * layout.bitsPerCell;
+        return (int) ((words[index / layout.cellsPerWord] >>> shift) & layout.cellMask);
+    }
+
+    private void setCell(int index, int cell) {
+        var word = index / layout.cellsPerWord;
+        var shift = (index % layout.cellsPerWord) * layout.bitsPerCell;
+        words[word] = (words[word] & ~(layout.cellMask << shift)) | ((long) cell << shift);
+    }
+
+    private void sortBoxes() {
+        for (var i = 2; i < layout.pieces; i++) {
+            var cell = getCell(i);
+            var j = i;
+            for (; j > 1 && getCell(j - 1) > cell; j--) {
+                setCell(j, getCell(j - 1));
+            }
+            setCell(j, cell);
+        }
+    }
+
+    private long computeHash() {
+        var result = layout.playerKeys[getCell(PLAYER)];
+        for (var i = 1; i < layout.pieces; i++) {
+            result ^= layout.boxKeys[getCell(i)];
+        }
+        return result;
+    }
+
+    private int countBoxesOnTargets() {
+        var count = 0;
+        for (var i = 1; i < layout.pieces; i++) {
+            if (layout.target[getCell(i)]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void movePlayer(int cell) {
+        hash ^= layout.playerKeys[getCell(PLAYER)] ^ layout.playerKeys[cell];
+        setCell(PLAYER, cell);
+    }
+
+    /**
+     * Moves a box to the specified cell, shifting it among the other boxes to keep them sorted.
+     */
+    private void moveBox(int index, int cell) {
+        hash ^= layout.boxKeys[getCell(index)] ^ layout.boxKeys[cell];
+        if (layout.target[getCell(index)]) {
+            boxesOnTargets--;
+        }
+        if (layout.target[cell]) {
+            boxesOnTargets++;
+        }
+        while (index > 1 && getCell(index - 1) > cell) {
+            setCell(index, getCell(index - 1));
+            index--;
+        }
+        while (index < layout.pieces - 1 && getCell(index + 1) < cell) {
+            setCell(index, getCell(index + 1));
+            index++;
+        }
+        setCell(index, cell);
+    }
+
+    private int boxAt(int cell) {
+        for (var i = 1; i < layout.pieces; i++) {
+            if (getCell(i) == cell) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the position of an object.
+     *
+     * @param index the index of the object, {@code 0} is the player and the boxes follow sorted by cell
+     * @return the position of the object
+     */
+    public Position getPosition(int index) {
+        return layout.positionOf(getCell(index));
+    }
+
+    /**
+     * {@return the number of {@code long} words the state is packed into}
+     */
+    public int getWordCount() {
+        return words.length;
+    }
+
+    /**
+     * {@return a word of the packed representation of the state}
+     *
+     * @param index the index of the word
+     */
+    public long getWord(int index) {
+        return words[index];
+    }
+
+    /**
+     * {@return the 64-bit Zobrist hash of the state}
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * {@return the number of boxes on the board}
+     */
+    public int getBoxCount() {
+        return layout.pieces - 1;
+    }
+
+    /**
+     * {@return the number of boxes standing on a target}
+     */
+    public int getBoxesOnTargets() {
+        return boxesOnTargets;
+    }
+
+    /**
+     * Checks if the game is solved.
+     * The boxes on targets are counted as they move, so this is a field read.
+     *
+     * @return true if every box is on a target position, false otherwise
+     */
+    @Override
+    public boolean isSolved() {
+        return boxesOnTargets == layout.pieces - 1;
+    }
+
+    /**
+     * Checks if a move in the specified direction is legal.
+     * Pushing a box onto a {@linkplain Map#isDeadSquare(int, int) dead square} is
+     * not considered legal, since the game could not be solved afterwards.
+     *
+     * @param direction the direction to check
+     * @return true if the move is legal, false otherwise
+     */
+    @Override
+    public boolean isLegalMove(Direction direction) {
+        return isLegalMove(direction.ordinal());
+    }
+
+    private boolean isLegalMove(int direction) {
+        var offset = layout.offsets[direction];
+        var next = getCell(PLAYER) + offset;
+        if (!layout.floor[next]) {
+            return false;
+        }
+        if (boxAt(next) == -1) {
+            return true;
+        }
+        var beyond = next + offset;
+        return layout.floor[beyond] && !layout.dead[beyond] && boxAt(beyond) == -1;
+    }
+
+    /**
+     * Moves the player, and the box in front of the player if any, to the direction specified.
+     *
+     * @param direction the direction to which the player is moved
+     */
+    @Override
+    public void makeMove(Direction direction) {
+        var offset = layout.offsets[direction.ordinal()];
+        var next = getCell(PLAYER) + offset;
+        var box = boxAt(next);
+        if (box != -1) {
+            moveBox(box, next + offset);
+        }
+        movePlayer(next);
+    }
+
+    /**
+     * Checks if a move in the specified direction would push a box.
+     *
+     * @param direction the direction to check
+     * @return true if there is a box next to the player in the direction given, false otherwise
+     */
+    public boolean isPush(Direction direction) {
+        return boxAt(getCell(PLAYER) + layout.offsets[direction.ordinal()]) != -1;
+    }
+
+    /**
+     * Takes back a move made in the specified direction, in place.
+     *
+     * @param direction the direction of the move to be taken back
+     * @param pushed whether the move pushed a box, as reported by {@link #isPush(Direction)} before the move
+     */
+    public void undoMove(Direction direction, boolean pushed) {
+        var offset = layout.offsets[direction.ordinal()];
+        var player = getCell(PLAYER);
+        if (pushed) {
+            moveBox(boxAt(player + offset), player);
+        }
+        movePlayer(player - offset);
+    }
+
+    /**
+     * Checks if this state could have been reached by a move in the specified direction,
+     * that is whether the move can be taken back by {@link #undoMove(Direction, boolean)}.
+     *
+     * @param direction the direction of the move to be taken back
+     * @param pushed whether the move is assumed to have pushed a box
+     * @return true if the player can step back, pulling the box in front if {@code pushed}
+     */
+    public boolean canUndoMove(Direction direction, boolean pushed) {
+        var offset = layout.offsets[direction.ordinal()];
+        var player = getCell(PLAYER);
+        var previous = player - offset;
+        return layout.floor[previous]
+                && boxAt(previous) == -1
+                && (!pushed || boxAt(player + offset) != -1);
+    }
+
+    /**
+     * Returns the set of legal moves for the player.
+     *
+     * @return the set of legal moves
+     */
+    @Override
+    public Set<Direction> getLegalMoves() {
+        var legalMoves = EnumSet.noneOf(Direction.class);
+        for (var moves = getLegalMoveMask(); moves != 0; moves &= moves - 1) {
+            legalMoves.add(Direction.fromMask(moves));
+        }
+        return legalMoves;
+    }
+
+    /**
+     * Returns the legal moves for the player without allocating anything.
+     *
+     * @return the {@linkplain Direction#mask() bits} of the legal moves
+     */
+    public int getLegalMoveMask() {
+        var mask = 0;
+        for (var direction = 0; direction < layout.offsets.length; direction++) {
+            if (isLegalMove(direction)) {
+                mask |= 1 << direction;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Generates the successors of this state into a buffer, reusing the states already
+     * there, so a search that keeps only the successors it has not seen before allocates
+     * nothing for the others.
+     * The successor reached by moving to a direction is written at the index of its
+     * {@linkplain Direction#ordinal() ordinal}; the other entries are left untouched.
+     *
+     * @param successors a buffer of at least four states, {@code null} entries and states
+     *                   on other boards being replaced by new states
+     * @return the {@linkplain Direction#mask() bits} of the legal moves, the successors written
+     */
+    public int getSuccessors(PackedState[] successors) {
+        var mask = getLegalMoveMask();
+        for (var moves = mask; moves != 0; moves &= moves - 1) {
+            var direction = Direction.fromMask(moves);
+            var successor = successors[direction.ordinal()];
+            if (successor == null || successor.layout != layout) {
+                successor = successors[direction.ordinal()] = clone();
+            } else {
+                System.arraycopy(words, 0, successor.words, 0, words.length);
+                successor.hash = hash;
+                successor.boxesOnTargets = boxesOnTargets;
+            }
+            successor.makeMove(direction);
+        }
+        return mask;
+    }
+
+    /**
+     * Computes the cells the player can walk to without pushing any box, by a breadth-first
+     * search from the cell of the player, remembering how every cell was reached.
+     *
+     * @return an array indexed by cell, holding for every reachable cell the direction
+     * of the last step leading there, and {@code null} for every other cell; the cell of
+     * the player is marked with {@link Direction#UP} by convention
+     */
+    private Direction[] reachableCells() {
+        var occupied = new boolean[layout.floor.length];
+        for (var i = 1; i < layout.pieces; i++) {
+            occupied[getCell(i)] = true;
+        }
+        var steps = new Direction[layout.floor.length];
+        var queue = new int[layout.floor.length];
+        var head = 0;
+        var tail = 0;
+        var start = getCell(PLAYER);
+        steps[start] = Direction.UP;
+        queue[tail++] = start;
+        while (head < tail) {
+            var cell = queue[head++];
+            for (var direction : Direction.values()) {
+                var next = cell + layout.offsets[direction.ordinal()];
+                if (layout.floor[next] && !occupied[next] && steps[next] == null) {
+                    steps[next] = direction;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * {@return the cells of the boxes}
+     */
+    public Bitboard getBoxes() {
+        var boxes = new Bitboard(layout.floor.length);
+        for (var i = 1; i < layout.pieces; i++) {
+            boxes.set(getCell(i));
+        }
+        return boxes;
+    }
+
+    /**
+     * Computes the cells the player can walk to without pushing any box, by a flood fill
+     * of bitboards from the cell of the player.
+     *
+     * @return the reachable cells, the cell of the player included
+     */
+    public Bitboard getReachable() {
+        return reachable(getBoxes());
+    }
+
+    private Bitboard reachable(Bitboard boxes) {
+        var open = layout.floorBits.copy();
+        open.andNot(boxes);
+        var reachable = new Bitboard(layout.floor.length);
+        reachable.set(getCell(PLAYER));
+        reachable.flood(open, layout.offsets);
+        return reachable;
+    }
+
+    /**
+     * Moves the player, in place, to the top-left-most square it can walk to without
+     * pushing any box. States differing only in where the player stands within the same
+     * region become equal after normalization.
+     */
+    public void normalizePlayer() {
+        movePlayer(getReachable().nextSetBit(0));
+    }
+
+    /**
+     * Returns the pushes the player can make after walking, without pushing, to the
+     * square behind a box. Pushes onto dead squares are left out.
+     * <p>
+     * Whether a box can be pushed is two bit tests, one against the cells the player can
+     * reach and one against the free live cells.
+     *
+     * @return the list of legal pushes
+     */
+    public List<Push> getLegalPushes() {
+        var boxes = getBoxes();
+        var reachable = reachable(boxes);
+        var free = layout.liveBits.copy();
+        free.andNot(boxes);
+        var pushes = new ArrayList<Push>();
+        for (var i = 1; i < layout.pieces; i++) {
+            var box = getCell(i);
+            for (var direction : Direction.values()) {
+                var offset = layout.offsets[direction.ordinal()];
+                if (reachable.get(box - offset) && free.get(box + offset)) {
+                    pushes.add(new Push(layout.positionOf(box), direction));
+                }
+            }
+        }
+        return pushes;
+    }
+
+    /**
+     * Makes a push in place: the player ends up on the square the box was pushed from.
+     * The push is assumed to be legal.
+     *
+     * @param push the push to be made
+     */
+    public void makePush(Push push) {
+        var box = cellOf(push.box());
+        moveBox(boxAt(box), box + layout.offsets[push.direction().ordinal()]);
+        movePlayer(box);
+    }
+
+    /**
+     * Finds a shortest walk of the player to the specified position that does not push any box.
+     *
+     * @param position the position the player has to reach
+     * @return the moves of the walk, or an empty optional if the position is not reachable
+     */
+    public Optional<List<Direction>> findWalk(Position position) {
+        var steps = reachableCells();
+        var cell = cellOf(position);
+        if (steps[cell] == null) {
+            return Optional.empty();
+        }
+        var moves = new ArrayList<Direction>();
+        for (var start = getCell(PLAYER); cell != start; cell -= layout.offsets[steps[cell].ordinal()]) {
+            moves.add(steps[cell]);
+        }
+        Collections.reverse(moves);
+        return Optional.of(moves);
+    }
+
+    /**
+     * Creates a copy of the current state.
+     *
+     * @return a new PackedState object sharing the layout of this state
+     */
+    @Override
+    public PackedState clone() {
+        return new PackedState(layout, words.clone(), hash, boxesOnTargets);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        return (o instanceof PackedState other)
+                && hash == other.hash
+                && layout.board == other.layout.board
+                && layout.pieces == other.layout.pieces
+                && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
+    @Override
+    public String toString() {
+        var sj = new StringJoiner(", ", "[", "]");
+        sj.add("Player: " + getPosition(PLAYER));
+        for (var i = 1; i < layout.pieces; i++) {
+            sj.add("Box" + i + ": " + getPosition(i));
+        }
+        return sj.toString();
+    }
+}
@@ -8,6 +8,8 @@ public record Position(int row, int col) {
     /**
      * {@return the position whose vertical and horizontal distances from this
      * position are equal to the coordinate changes of the direction given}
+     * A new position is created on every call, {@link Map#move(Position, Direction)}
+     * returns the position the map keeps instead.
      *
      * @param direction a direction that specifies a change in the coordinates
      */
@@ -0,0 +1,16 @@
+package sokoban.state;
+
+/**
+ * Represents pushing a box one square to a direction.
+ *
+ * @param box the position of the box before the push
+ * @param direction the direction of the push
+ */
+public record Push(Position box, Direction direction) {
+
+    @Override
+    public String toString() {
+        return String.format("%s%s", direction, box);
+    }
+
+}
@@ -1,12 +1,9 @@
 package sokoban.state;
 
-import javafx.beans.property.ReadOnlyBooleanWrapper;
-import javafx.beans.property.ReadOnlyObjectProperty;
-import javafx.beans.property.ReadOnlyObjectWrapper;
 import puzzle.State;
 
+import java.util.Arrays;
 import java.util.EnumSet;
-import java.util.Objects;
 import java.util.Set;
 import java.util.StringJoiner;
 
@@ -16,16 +13,20 @@ import java.util.StringJoiner;
  * The SokobanState class implements the State interface with Direction as the generic type.
  * It manages the game board, player and box positions,
  * and handles game logic such as moves and win conditions.
+ * It is a plain model without any JavaFX dependency, the observable view used by the
+ * user interface is provided by {@code sokoban.gui.ObservableSokobanState}.
+ * A state is played on the built-in {@link #board} unless another {@link Map}, usually
+ * read by {@link Level}, is given, with as many boxes as the board has targets.
  */
 public class SokobanState implements State<Direction> {
 
     /**
-     * The game board, represented as a Map instance.
+     * The built-in game board, represented as a Map instance.
      */
     public static Map board = new Map();
 
     /**
-     * The size of the game board.
+     * The size of the built-in game board.
      */
     public static final int BOARD_SIZE = board.width();
 
@@ -65,9 +66,26 @@ public class SokobanState implements State<Direction> {
      */
     public static final int THIRD_BOX_POSITION = 3;
 
-    private ReadOnlyObjectWrapper<Position>[] positions;
+    private static final Direction[] DIRECTIONS = Direction.values();
 
-    private final ReadOnlyBooleanWrapper solved;
+    private final Map map;
+
+    private final Position[] positions;
+
+    /**
+     * The cells of the boxes, updated on every push.
+     */
+    private final Bitboard boxes;
+
+    /**
+     * The number of boxes standing on a target, updated on every push.
+     */
+    private int boxesOnTargets;
+
+    /**
+     * The Zobrist hash of the positions, updated on every move.
+     */
+    private long hash;
 
     /**
      * Constructs a SokobanState with default initial positions.
@@ -77,46 +95,61 @@ public class SokobanState implements State<Direction> {
                 new Position(2, 2),
                 new Position(3, 2),
                 new Position(2, 3));
-        board = new Map();
     }
 
 
     /**
-     * Array of positions representing the target locations for the boxes.
+     * Array of positions representing the target locations for the boxes on the built-in board.
      */
     public static final Position[] finishPositions =  {
             new Position(3,7), new Position(4,7), new Position(5,7)
     };
 
     /**
-     * Constructs a SokobanState with specified initial positions.
+     * Constructs a SokobanState with specified initial positions on the built-in board.
      *
      * @param positions the initial positions for the player and the boxes.
      */
     public SokobanState(Position... positions) {
+        this(board, positions);
+    }
+
+    /**
+     * Constructs a SokobanState with specified initial positions on the specified board.
+     *
+     * @param map the board of the game.
+     * @param positions the initial positions for the player and the boxes, one box for every target.
+     */
+    public SokobanState(Map map, Position... positions) {
+        this.map = map;
         checkPositions(positions);
-        this.positions = new ReadOnlyObjectWrapper[4];
-        for (var i = 0; i < 4; i++) {
-            this.positions[i] = new ReadOnlyObjectWrapper<>(positions[i]);
+        this.positions = new Position[positions.length];
+        for (var i = 0; i < positions.length; i++) {
+            this.positions[i] = map.positionAt(positions[i].row(), positions[i].col());
         }
-        solved = new ReadOnlyBooleanWrapper();
-
-        solved.bind((this.positions[1].isEqualTo(finishPositions[0]).
-                or(this.positions[1].isEqualTo(finishPositions[1])).
-                or(this.positions[1].isEqualTo(finishPositions[2]))).
-
-                and(this.positions[2].isEqualTo(finishPositions[0]).
-                        or(this.positions[2].isEqualTo(finishPositions[1])).
-                        or(this.positions[2].isEqualTo(finishPositions[2]))).
+        boxes = new Bitboard(map.cellCount());
+        hash = playerKey(positions[PLAYER_POSITION]);
+        for (var i = FIRST_BOX_POSITION; i < positions.length; i++) {
+            boxes.set(cellOf(i));
+            if (map.isTarget(cellOf(i))) {
+                boxesOnTargets++;
+            }
+            hash ^= boxKey(i, positions[i]);
+        }
+    }
 
-                and(this.positions[3].isEqualTo(finishPositions[0]).
-                        or(this.positions[3].isEqualTo(finishPositions[1])).
-                        or(this.positions[3].isEqualTo(finishPositions[2]))));
+    private SokobanState(SokobanState other) {
+        map = other.map;
+        positions = other.positions.clone();
+        boxes = other.boxes.copy();
+        boxesOnTargets = other.boxesOnTargets;
+        hash = other.hash;
     }
 
     private void checkPositions(Position[] positions) {
-        if (positions == null || positions.length != 4) {
-            throw new IllegalArgumentException("Exactly four positions are required.");
+        var required = map.getTargets().size() + 1;
+        if (positions == null || positions.length != required) {
+            throw new IllegalArgumentException("Exactly " + required + " positions are required.");
         }
 
         for (var position : positions) {
@@ -134,11 +167,9 @@ public class SokobanState implements State<Direction> {
      * @return true if the position is valid, false otherwise.
      */
     boolean isOnBoard(Position position) {
-        return position.row() > 0 && position.row() < BOARD_SIZE - 1 &&
-                position.col() > 0 && position.col() < BOARD_SIZE - 1 &&
-                board.getPosition(position.row(), position.col()) != WALL &&
-                board.getPosition(position.row(), position.col()) != OUT_OF_BOARD;
-
+        return position.row() > 0 && position.row() < map.height() - 1 &&
+                position.col() > 0 && position.col() < map.width() - 1 &&
+                map.isFloor(map.cellOf(position.row(), position.col()));
     }
 
     /**
@@ -148,109 +179,86 @@ public class SokobanState implements State<Direction> {
      * @return the position of an object.
      */
     public Position getPosition(int index) {
-        return positions[index].get();
+        return positions[index];
     }
 
     /**
-     * Gets the read-only property for the position at the specified index.
-     *
-     * @param index the index of the position.
-     * @return the read-only property for the position at the specified index.
+     * @return the board the game is played on.
+     */
+    public Map getBoard() {
+        return map;
+    }
+
+    /**
+     * @return the number of boxes on the board.
      */
-    public ReadOnlyObjectProperty<Position> positionProperty(int index) {
-        return positions[index].getReadOnlyProperty();
+    public int getBoxCount() {
+        return positions.length - 1;
     }
 
     /**
-     * Checks if the game is solved.
+     * @return the number of boxes standing on a target.
+     */
+    public int getBoxesOnTargets() {
+        return boxesOnTargets;
+    }
+
+    /**
+     * Checks if the game is solved, that is every box stands on a target.
+     * The boxes on targets are counted as they are pushed, so this is a field read.
      *
      * @return true if the game is solved, false otherwise.
      */
     @Override
     public boolean isSolved() {
-        return solved.get();
+        return boxesOnTargets == positions.length - 1;
     }
 
     /**
      * Checks if a move in the specified direction is legal.
+     * The squares are looked up by cell index, the board being surrounded by a border
+     * of positions outside the board, so the check neither allocates nor checks bounds.
      *
      * @param direction the direction to check.
      * @return true if the move is legal, false otherwise.
      */
     @Override
     public boolean isLegalMove(Direction direction) {
-        return switch (direction) {
-            case UP -> canMoveUp();
-            case RIGHT -> canMoveRight();
-            case DOWN -> canMoveDown();
-            case LEFT -> canMoveLeft();
-        };
-    }
-
-    private boolean canMoveUp() {
-        Position playerPosition = getPosition(PLAYER_POSITION);
-        if (! isOnBoard(playerPosition.moveUp())) {
+        var offset = map.offset(direction);
+        var next = cellOf(PLAYER_POSITION) + offset;
+        if (!map.isFloor(next)) {
             return false;
         }
-
-        var up = playerPosition.moveUp();
-        return isEmpty(up) ||
-                (playerPosition.row() > 2 && isInDirection(Direction.UP) != -1 && isEmpty(up.moveUp()));
-    }
-
-    private boolean canMoveRight() {
-        Position playerPosition = getPosition(PLAYER_POSITION);
-        if (! isOnBoard(playerPosition.moveRight())) {
-            return false;
+        if (!boxes.get(next)) {
+            return true;
         }
-
-        var right = playerPosition.moveRight();
-        return isEmpty(right) ||
-                ( playerPosition.col() < 7 && isInDirection(Direction.RIGHT) != -1  && isEmpty(right.moveRight()));
+        var beyond = next + offset;
+        return map.isFloor(beyond) && !boxes.get(beyond);
     }
 
-    private boolean canMoveDown() {
-        Position playerPosition = getPosition(PLAYER_POSITION);
-        if (! isOnBoard(playerPosition.moveDown())) {
-            return false;
-        }
-
-        var down = playerPosition.moveDown();
-        return isEmpty(down) ||
-                ( playerPosition.row() < 7 && isInDirection(Direction.DOWN) !=-1  && isEmpty(down.moveDown()));
+    private int cellOf(int index) {
+        return map.cellOf(positions[index]);
     }
 
-    private boolean canMoveLeft() {
-        Position playerPosition = getPosition(PLAYER_POSITION);
-        if (! isOnBoard(playerPosition.moveLeft())){
-            return false;
+    /**
+     * The positions of the pieces are the ones of the {@linkplain Map#positionOf(int) map},
+     * so they are compared by reference.
+     *
+     * @return the index of the box on the cell, or -1 if there is none.
+     */
+    private int boxAt(int cell) {
+        if (!boxes.get(cell)) {
+            return -1;
         }
-
-        var left = playerPosition.moveLeft();
-        return isEmpty(left) ||
-                ( playerPosition.col() > 2 && isInDirection(Direction.LEFT) != -1 && isEmpty(left.moveLeft()));
-    }
-
-    private int isInDirection(Direction direction) {
-        Position playerPosition = getPosition(PLAYER_POSITION).move(direction);
-        for (int i = 1; i < 4 ; i++) {
-            if(playerPosition.col() == getPosition(i).col() &&
-                    playerPosition.row() == getPosition(i).row()) {
+        var position = map.positionOf(cell);
+        for (var i = FIRST_BOX_POSITION; i < positions.length; i++) {
+            if (positions[i] == position) {
                 return i;
             }
         }
         return -1;
     }
 
-    private boolean isEmpty(Position position) {
-        for (var p : positions) {
-            if(p.get().equals(position)) {
-                return false;
-            }
-        }
-        return board.getPosition(position.row(), position.col()) != WALL;
-    }
-
     /**
      * Moves the block and the player to the direction specified.
      *
@@ -268,15 +276,27 @@ public class SokobanState implements State<Direction> {
     
     private void movePlayer(Direction direction) {
 
-        int index = isInDirection(direction);
+        var offset = map.offset(direction);
+        var next = cellOf(PLAYER_POSITION) + offset;
+        int index = boxAt(next);
         if (index != -1) {
+            boxes.clear(next);
+            boxes.set(next + offset);
+            if (map.isTarget(next)) {
+                boxesOnTargets--;
+            }
+            if (map.isTarget(next + offset)) {
+                boxesOnTargets++;
+            }
 
             Position position = getPosition(index);
-            positions[index].set(position.move(direction));
+            positions[index] = map.positionOf(next + offset);
+            hash ^= boxKey(index, position) ^ boxKey(index, positions[index]);
         }
 
-        Position newPosition = getPosition(PLAYER_POSITION).move(direction);
-        positions[PLAYER_POSITION].set(newPosition);
+        Position newPosition = map.positionOf(next);
+        hash ^= playerKey(getPosition(PLAYER_POSITION)) ^ playerKey(newPosition);
+        positions[PLAYER_POSITION] = newPosition;
 
     }
 
@@ -288,12 +308,52 @@ public class SokobanState implements State<Direction> {
     @Override
     public Set<Direction> getLegalMoves() {
         var legalMoves = EnumSet.noneOf(Direction.class);
-        for (var direction : Direction.values()) {
+        for (var moves = getLegalMoveMask(); moves != 0; moves &= moves - 1) {
+            legalMoves.add(Direction.fromMask(moves));
+        }
+        return legalMoves;
+    }
+
+    /**
+     * Returns the legal moves for the player without allocating anything.
+     *
+     * @return the {@linkplain Direction#mask() bits} of the legal moves.
+     */
+    public int getLegalMoveMask() {
+        var mask = 0;
+        for (var direction : DIRECTIONS) {
             if (isLegalMove(direction)) {
-                legalMoves.add(direction);
+                mask |= direction.mask();
             }
         }
-        return legalMoves;
+        return mask;
+    }
+
+    /**
+     * Generates the successors of this state into a buffer, reusing the states already there.
+     * The successor reached by moving to a direction is written at the index of its
+     * {@linkplain Direction#ordinal() ordinal}; the other entries are left untouched.
+     *
+     * @param successors a buffer of at least four states, {@code null} entries and states
+     *                   on other boards being replaced by new states.
+     * @return the {@linkplain Direction#mask() bits} of the legal moves, the successors written.
+     */
+    public int getSuccessors(SokobanState[] successors) {
+        var mask = getLegalMoveMask();
+        for (var moves = mask; moves != 0; moves &= moves - 1) {
+            var direction = Direction.fromMask(moves);
+            var successor = successors[direction.ordinal()];
+            if (successor == null || successor.map != map) {
+                successor = successors[direction.ordinal()] = clone();
+            } else {
+                System.arraycopy(positions, 0, successor.positions, 0, positions.length);
+                successor.boxes.assign(boxes);
+                successor.boxesOnTargets = boxesOnTargets;
+                successor.hash = hash;
+            }
+            successor.makeMove(direction);
+        }
+        return mask;
     }
 
     /**
@@ -303,8 +363,7 @@ public class SokobanState implements State<Direction> {
      */
     @Override
     public SokobanState clone() {
-        return new SokobanState(getPosition(PLAYER_POSITION), getPosition(FIRST_BOX_POSITION),
-                getPosition(SECOND_BOX_POSITION), getPosition(THIRD_BOX_POSITION));
+        return new SokobanState(this);
     }
 
     @Override
@@ -313,26 +372,36 @@ public class SokobanState implements State<Direction> {
             return true;
         }
         return (o instanceof SokobanState other)
-                && getPosition(PLAYER_POSITION).equals(other.getPosition(PLAYER_POSITION))
-                && getPosition(FIRST_BOX_POSITION).equals(other.getPosition(FIRST_BOX_POSITION))
-                && getPosition(SECOND_BOX_POSITION).equals(other.getPosition(SECOND_BOX_POSITION))
-                && getPosition(THIRD_BOX_POSITION).equals(other.getPosition(THIRD_BOX_POSITION));
+                && hash == other.hash
+                && map == other.map
+                && Arrays.equals(positions, other.positions);
     }
 
 
+    private long playerKey(Position position) {
+        return map.getPlayerKey(position.row(), position.col());
+    }
+
+    /**
+     * The boxes are told apart by their index here, so the key of the board is rotated
+     * differently for every box, by an odd number of bits so the first 64 boxes all differ.
+     */
+    private long boxKey(int index, Position position) {
+        return Long.rotateLeft(map.getBoxKey(position.row(), position.col()), index * 7);
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hash(getPosition(PLAYER_POSITION), getPosition(FIRST_BOX_POSITION),
-                getPosition(SECOND_BOX_POSITION), getPosition(THIRD_BOX_POSITION));
+        return Long.hashCode(hash);
     }
 
     @Override
     public String toString() {
         var sj = new StringJoiner(",", "[", "]");
-        sj.add("Player: " + positions[0].get().toString());
-        sj.add(" BOX1: " + positions[1].get().toString());
-        sj.add(" Box2: " + positions[2].get().toString());
-        sj.add(" BOX3: " + positions[3].get().toString());
+        sj.add("Player: " + positions[0].toString());
+        for (var i = FIRST_BOX_POSITION; i < positions.length; i++) {
+            sj.add((i % 2 == 1 ? " BOX" : " Box") + i + ": " + positions[i].toString());
+        }
 
         return sj.toString();
     }
@@ -0,0 +1,55 @@
+package sokoban.solver;
+
+import org.junit.jupiter.api.Test;
+import sokoban.state.Level;
+import sokoban.state.PackedState;
+import sokoban.state.SokobanState;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AStarSearchTest {
+
+    @Test
+    void testSolveFindsShortestSolution() {
+        var initialState = PackedState.of(new SokobanState());
+        var solution = new AStarSearch().solve(initialState).orElseThrow();
+
+        assertEquals(89, solution.length(), "The shortest solution of the built-in level has 89 moves.");
+        assertTrue(solution.expanded() > 0 && solution.generated() >= solution.expanded(), "Search statistics should be recorded.");
+
+        var state = initialState.clone();
+        for (var direction : solution.moves()) {
+            assertTrue(state.isLegalMove(direction), "Every move of the solution should be legal.");
+            state.makeMove(direction);
+        }
+        assertTrue(state.isSolved(), "The solution should solve the game.");
+    }
+
+    @Test
+    void testSolveWithZeroHeuristic() {
+        var solution = new AStarSearch(state -> 0).solve(PackedState.of(new SokobanState())).orElseThrow();
+        assertEquals(89, solution.length(), "A zero heuristic should still find a shortest solution.");
+    }
+
+    @Test
+    void testSolveLoadedLevel() {
+        var level = Level.parse("""
+                ########
+                #.  $. #
+                # $    #
+                #  @   #
+                ########
+                """);
+        var initialState = PackedState.of(level.createState());
+        var search = new AStarSearch(new AssignmentHeuristic(level.board()), new DeadlockDetector(level.board()));
+        var solution = search.solve(initialState).orElseThrow();
+
+        var state = initialState.clone();
+        for (var direction : solution.moves()) {
+            assertTrue(state.isLegalMove(direction), "Every move of the solution should be legal.");
+            state.makeMove(direction);
+        }
+        assertTrue(state.isSolved(), "The solution should solve the loaded level.");
+    }
+
+}
@@ -0,0 +1,56 @@
+package sokoban.solver;
+
+import org.junit.jupiter.api.Test;
+import sokoban.state.PackedState;
+import sokoban.state.Position;
+import sokoban.state.SokobanState;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentHeuristicTest {
+
+    @Test
+    void testMinimumCost() {
+        assertEquals(0, AssignmentHeuristic.minimumCost(new int[0][0]), "An empty assignment should cost nothing.");
+        assertEquals(5, AssignmentHeuristic.minimumCost(new int[][]{{4, 1, 3}, {2, 0, 5}, {3, 2, 2}}), "The cheapest assignment should be found.");
+        assertEquals(3, AssignmentHeuristic.minimumCost(new int[][]{{7, 1, 9}, {2, 8, 3}}), "Rows may be assigned to a subset of the columns.");
+        assertThrows(IllegalArgumentException.class, () -> AssignmentHeuristic.minimumCost(new int[][]{{1}, {2}}), "More rows than columns should be rejected.");
+    }
+
+    @Test
+    void testEstimate() {
+        var heuristic = new AssignmentHeuristic();
+        assertEquals(31, heuristic.estimate(PackedState.of(new SokobanState())), "The initial state should need at least 31 pushes around the walls.");
+
+        var manhattan = new AssignmentHeuristic(SokobanState.finishPositions);
+        assertEquals(19, manhattan.estimate(PackedState.of(new SokobanState())), "The initial state should be 19 pushes away ignoring the walls.");
+
+        var solved = PackedState.of(new SokobanState(new Position(5, 6), new Position(5, 7), new Position(3, 7), new Position(4, 7)));
+        assertEquals(0, heuristic.estimate(solved), "A solved state should be estimated to zero.");
+    }
+
+    @Test
+    void testEstimateDoesNotAllocate() {
+        var bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        var heuristic = new AssignmentHeuristic();
+        var state = PackedState.of(new SokobanState());
+        // Warm up until the estimate is compiled, which may allocate on the calling thread.
+        var total = 0L;
+        for (var i = 0; i < 20_000; i++) {
+            total += heuristic.estimate(state);
+        }
+        var before = bean.getCurrentThreadAllocatedBytes();
+        for (var i = 0; i < 1000; i++) {
+            total += heuristic.estimate(state);
+        }
+        var allocated = bean.getCurrentThreadAllocatedBytes() - before;
+        assertEquals(31L * 21_000, total, "Every estimate should be the same.");
+        assertEquals(0, allocated, "Estimating on a thread that already estimated should not allocate.");
+    }
+
+}
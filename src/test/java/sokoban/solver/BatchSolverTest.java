@@ -0,0 +1,82 @@
+package sokoban.solver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import sokoban.state.Level;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchSolverTest {
+
+    private static final Level CORRIDOR = Level.parse("""
+            ############
+            #@ $     . #
+            ############
+            """);
+
+    private static final Level STUCK = Level.parse("""
+            ######
+            #$@ .#
+            ######
+            """);
+
+    @Test
+    void testSolveAll() {
+        var report = new BatchSolver("push", 2, Duration.ofMinutes(1), Long.MAX_VALUE)
+                .solveAll(List.of(Level.builtIn(), CORRIDOR, STUCK));
+
+        assertEquals(2, report.solved(), "Two of the levels can be solved.");
+        assertEquals(3, report.levels().size(), "Every level should be reported.");
+        var builtIn = report.levels().get(0);
+        assertEquals(BatchSolver.Status.SOLVED, builtIn.status(), "The built-in level should be solved.");
+        assertEquals(31, builtIn.pushes(), "The push search should find the fewest pushes.");
+        assertEquals(builtIn.solution().length(), (int) builtIn.moves(), "Every move should be in the solution.");
+        var corridor = report.levels().get(1);
+        assertEquals("rRRRRRR", corridor.solution(), "Pushes should be written in upper case.");
+        assertEquals(2, corridor.number(), "Levels should keep their order.");
+        var stuck = report.levels().get(2);
+        assertEquals(BatchSolver.Status.UNSOLVABLE, stuck.status(), "A box in a corner cannot be solved.");
+        assertNull(stuck.solution(), "There should be no solution for an unsolvable level.");
+    }
+
+    @Test
+    void testLimits() {
+        var timeLimited = new BatchSolver("idastar", 1, Duration.ofMillis(1), Long.MAX_VALUE)
+                .solveAll(List.of(Level.builtIn()));
+        assertEquals(BatchSolver.Status.TIME_LIMIT, timeLimited.levels().get(0).status(),
+                "The search should be aborted after the time limit.");
+
+        var stateLimited = new BatchSolver("idastar", 1, Duration.ofMinutes(1), 100)
+                .solveAll(List.of(Level.builtIn()));
+        assertEquals(BatchSolver.Status.MEMORY_LIMIT, stateLimited.levels().get(0).status(),
+                "The search should be aborted once it holds more states than the limit.");
+        assertEquals(0, stateLimited.solved(), "No level should be solved.");
+
+        var small = new BatchSolver("astar", 1, Duration.ofMinutes(1), 100).solveAll(List.of(CORRIDOR));
+        var corridor = small.levels().get(0);
+        assertEquals(BatchSolver.Status.SOLVED, corridor.status(), "A search holding few states should not be aborted.");
+        assertTrue(corridor.peakStates() > 0 && corridor.peakStates() <= 100, "The states held should be reported.");
+        assertTrue(corridor.allocatedBytes() == -1 || corridor.allocatedBytes() > 100,
+                "The garbage of the search should not count against the limit.");
+    }
+
+    @Test
+    void testReportIsJson() throws Exception {
+        var report = new BatchSolver("astar", 1, Duration.ofMinutes(1), Long.MAX_VALUE).solveAll(List.of(CORRIDOR));
+        var json = new ObjectMapper().readTree(new ObjectMapper().writeValueAsString(report));
+
+        assertEquals("astar", json.get("algorithm").asText(), "The algorithm should be reported.");
+        assertEquals(7, json.get("levels").get(0).get("moves").asInt(), "The length of the solution should be reported.");
+        assertTrue(json.get("levels").get(0).get("wallTimeMillis").isNumber(), "The time should be reported.");
+    }
+
+    @Test
+    void testUnknownAlgorithm() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchSolver("bfs", 1, Duration.ofSeconds(1), 1),
+                "Only the single-threaded searches can be used.");
+    }
+
+}
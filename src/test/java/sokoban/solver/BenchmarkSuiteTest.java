@@ -0,0 +1,61 @@
+package sokoban.solver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BenchmarkSuiteTest {
+
+    private Path corpus() throws Exception {
+        return Path.of(getClass().getResource("/corpus").toURI());
+    }
+
+    @Test
+    void testCorpus() throws Exception {
+        var corpus = BenchmarkSuite.loadCorpus(corpus(), BenchmarkSuite.TIERS);
+        var names = new HashSet<String>();
+        for (var tier : BenchmarkSuite.TIERS) {
+            assertTrue(corpus.get(tier).size() >= 4, "Every tier should have several levels.");
+            for (var level : corpus.get(tier)) {
+                assertTrue(names.add(level.name()), "Level names should be unique.");
+            }
+        }
+    }
+
+    @Test
+    void testRunEasyTier() throws Exception {
+        var corpus = BenchmarkSuite.loadCorpus(corpus(), List.of("easy"));
+        var report = new BenchmarkSuite(List.of("astar", "push", "compact-bfs"), 1, Duration.ofSeconds(30)).run(corpus);
+
+        assertEquals(corpus.get("easy").size(), report.levels().size(), "Every level should be reported.");
+        for (var level : report.levels()) {
+            assertNotNull(level.optimalMoves(), "The optimal solution of an easy level should be known.");
+            for (var run : level.runs()) {
+                assertEquals(BatchSolver.Status.SOLVED, run.status(), "Every easy level should be solved.");
+                assertTrue(run.peakHeapBytes() > 0, "The heap usage should be measured.");
+                if (!run.algorithm().equals("push")) {
+                    assertEquals(Boolean.TRUE, run.optimal(), "Searches over moves should find the fewest moves.");
+                }
+            }
+        }
+        var summary = report.summary().get(0);
+        assertEquals("astar", summary.algorithm(), "The summary should follow the order of the solvers.");
+        assertEquals(report.levels().size(), summary.solved(), "A* should solve every easy level.");
+
+        var json = new ObjectMapper().readTree(new ObjectMapper().writeValueAsString(report));
+        assertEquals(3, json.get("levels").get(0).get("runs").size(), "The report should list every run.");
+    }
+
+    @Test
+    void testUnknownAlgorithm() {
+        assertThrows(IllegalArgumentException.class, () -> new BenchmarkSuite(List.of("dfs"), 1, Duration.ofSeconds(1)),
+                "Unknown solvers should be rejected.");
+    }
+
+}
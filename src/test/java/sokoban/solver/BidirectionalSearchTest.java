@@ -0,0 +1,32 @@
+package sokoban.solver;
+
+import org.junit.jupiter.api.Test;
+import sokoban.state.PackedState;
+import sokoban.state.Position;
+import sokoban.state.SokobanState;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BidirectionalSearchTest {
+
+    @Test
+    void testSolveFindsShortestSolution() {
+        var initialState = PackedState.of(new SokobanState());
+        var solution = new BidirectionalSearch().solve(initialState).orElseThrow();
+
+        assertEquals(89, solution.length(), "The shortest solution of the built-in level has 89 moves.");
+        var state = initialState.clone();
+        for (var direction : solution.moves()) {
+            assertTrue(state.isLegalMove(direction), "Every move of the solution should be legal.");
+            state.makeMove(direction);
+        }
+        assertTrue(state.isSolved(), "The solution should solve the game.");
+    }
+
+    @Test
+    void testSolveOneMoveAway() {
+        var initialState = PackedState.of(new SokobanState(new Position(5, 5), new Position(3, 7), new Position(4, 7), new Position(5, 6)));
+        assertEquals(1, new BidirectionalSearch().solve(initialState).orElseThrow().length(), "A single push should solve the game.");
+    }
+
+}
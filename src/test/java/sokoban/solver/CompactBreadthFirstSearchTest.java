@@ -0,0 +1,29 @@
+package sokoban.solver;
+
+import org.junit.jupiter.api.Test;
+import sokoban.state.PackedState;
+import sokoban.state.SokobanState;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactBreadthFirstSearchTest {
+
+    @Test
+    void testSolveFindsShortestSolution() {
+        for (var offHeap : new boolean[]{false, true}) {
+            var initialState = PackedState.of(new SokobanState());
+            var search = new CompactBreadthFirstSearch(new DeadlockDetector(), offHeap);
+            var solution = search.solve(initialState).orElseThrow();
+            assertEquals(89, solution.length(), "The shortest solution should have 89 moves.");
+
+            var state = initialState.clone();
+            for (var direction : solution.moves()) {
+                assertTrue(state.isLegalMove(direction), "Every move of the solution should be legal.");
+                state.makeMove(direction);
+            }
+            assertTrue(state.isSolved(), "The solution should solve the game.");
+            assertEquals(offHeap, search.getVisited().orElseThrow().isOffHeap(), "The visited states should be stored as requested.");
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package sokoban.solver;
+
+import org.junit.jupiter.api.Test;
+import sokoban.state.Direction;
+import sokoban.state.PackedState;
+import sokoban.state.Position;
+import sokoban.state.SokobanState;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlockDetectorTest {
+
+    private static PackedState stateOf(Position... positions) {
+        return new PackedState(SokobanState.board, positions);
+    }
+
+    @Test
+    void testFreezeDeadlock() {
+        var detector = new DeadlockDetector();
+        // Two boxes side by side under a wall, the second one just pushed left.
+        var state = stateOf(new Position(5, 6), new Position(5, 4), new Position(5, 5), new Position(2, 2));
+        assertTrue(detector.isDeadlockAfterPush(state, Direction.LEFT), "Boxes freezing each other against a wall should be a deadlock.");
+        assertEquals(1, detector.getFrozenPruned(), "The deadlock should be counted as a freeze.");
+        assertEquals(0, detector.getCorralPruned(), "The deadlock should not be counted as a closed corral.");
+    }
+
+    @Test
+    void testClosedCorralDeadlock() {
+        var detector = new DeadlockDetector();
+        // Two boxes sealing off the bottom left corner, the second one just pushed down.
+        var state = stateOf(new Position(5, 4), new Position(6, 3), new Position(6, 4), new Position(2, 2));
+        assertTrue(detector.isDeadlockAfterPush(state, Direction.DOWN), "A corral none of whose boxes can be pushed should be a deadlock.");
+        assertEquals(0, detector.getFrozenPruned(), "The deadlock should not be counted as a freeze.");
+        assertEquals(1, detector.getCorralPruned(), "The deadlock should be counted as a closed corral.");
+    }
+
+    @Test
+    void testNoDeadlock() {
+        var detector = new DeadlockDetector();
+        var state = stateOf(new Position(5, 6), new Position(5, 5), new Position(2, 2), new Position(6, 3));
+        assertFalse(detector.isDeadlockAfterPush(state, Direction.LEFT), "A box that can still be pushed back should not be a deadlock.");
+        state = stateOf(new Position(5, 3), new Position(4, 3), new Position(2, 2), new Position(6, 4));
+        assertFalse(detector.isDeadlockAfterPush(state, Direction.UP), "A corral whose fence can be pushed into should not be a deadlock.");
+        assertEquals(2, detector.getChecked(), "Every check should be counted.");
+        assertEquals(0, detector.getFrozenPruned() + detector.getCorralPruned(), "Nothing should be pruned.");
+    }
+
+    @Test
+    void testBoxesOnTargetsAreNotDeadlocked() {
+        var detector = new DeadlockDetector();
+        var state = stateOf(new Position(5, 6), new Position(3, 7), new Position(4, 7), new Position(5, 7));
+        assertFalse(detector.isDeadlockAfterPush(state, Direction.RIGHT), "Frozen boxes on targets should not be a deadlock.");
+    }
+
+    @Test
+    void testRepeatedChecksAreIndependent() throws InterruptedException {
+        var detector = new DeadlockDetector();
+        var frozen = stateOf(new Position(5, 6), new Position(5, 4), new Position(5, 5), new Position(2, 2));
+        var corral = stateOf(new Position(5, 4), new Position(6, 3), new Position(6, 4), new Position(2, 2));
+        var free = stateOf(new Position(5, 3), new Position(4, 3), new Position(2, 2), new Position(6, 4));
+        for (var i = 0; i < 3; i++) {
+            assertTrue(detector.isDeadlockAfterPush(frozen, Direction.LEFT), "A check should not see the boxes of an earlier one.");
+            assertFalse(detector.isDeadlockAfterPush(free, Direction.UP), "A check should not see the corral of an earlier one.");
+            assertTrue(detector.isDeadlockAfterPush(corral, Direction.DOWN), "A check should not see the reachable area of an earlier one.");
+        }
+        var other = new boolean[1];
+        var thread = new Thread(() -> other[0] = detector.isDeadlockAfterPush(corral, Direction.DOWN));
+        thread.start();
+        thread.join();
+        assertTrue(other[0], "Another thread sharing the detector should get the same answer.");
+        assertEquals(10, detector.getChecked(), "The checks of every thread should be counted.");
+    }
+
+    @Test
+    void testSuccessorLoopDoesNotAllocate() {
+        var bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        var detector = new DeadlockDetector();
+        var state = stateOf(new Position(5, 5), new Position(5, 4), new Position(6, 4), new Position(2, 2));
+        var successors = new PackedState[Direction.values().length];
+        // Warm up until the loop is compiled, which may allocate on the calling thread.
+        var pruned = 0;
+        for (var i = 0; i < 20_000; i++) {
+            pruned += expand(detector, state, successors);
+        }
+        var before = bean.getCurrentThreadAllocatedBytes();
+        for (var i = 0; i < 1000; i++) {
+            pruned += expand(detector, state, successors);
+        }
+        var allocated = bean.getCurrentThreadAllocatedBytes() - before;
+        assertTrue(pruned > 0, "The state should have deadlocked successors.");
+        assertEquals(0, allocated, "Generating and checking successors into a warm buffer should not allocate.");
+    }
+
+    private static int expand(DeadlockDetector detector, PackedState state, PackedState[] successors) {
+        var pruned = 0;
+        for (var moves = state.getSuccessors(successors); moves != 0; moves &= moves - 1) {
+            var direction = Direction.fromMask(moves);
+            if (state.isPush(direction) && detector.isDeadlockAfterPush(successors[direction.ordinal()], direction)) {
+                pruned++;
+            }
+        }
+        return pruned;
+    }
+
+}
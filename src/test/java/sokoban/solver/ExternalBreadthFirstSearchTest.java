@@ -0,0 +1,45 @@
+package sokoban.solver;
+
+import org.junit.jupiter.api.Test;
+import sokoban.state.PackedState;
+import sokoban.state.SokobanState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalBreadthFirstSearchTest {
+
+    @Test
+    void testSolveFindsShortestSolution() throws IOException {
+        var directory = Files.createTempDirectory("external-bfs-test");
+        try {
+            var initialState = PackedState.of(new SokobanState());
+            // Tiny runs force many of them to be merged for every layer.
+            var search = new ExternalBreadthFirstSearch(directory, 64, new DeadlockDetector());
+            var solution = search.solve(initialState).orElseThrow();
+            assertEquals(89, solution.length(), "The shortest solution should have 89 moves.");
+
+            var state = initialState.clone();
+            for (var direction : solution.moves()) {
+                assertTrue(state.isLegalMove(direction), "Every move of the solution should be legal.");
+                state.makeMove(direction);
+            }
+            assertTrue(state.isSolved(), "The solution should solve the game.");
+            assertTrue(search.getBytesWritten() > 0, "The layers should have been written to disk.");
+            try (var files = Files.list(directory)) {
+                assertEquals(0, files.count(), "Every file of the search should be deleted.");
+            }
+        } finally {
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void testInvalidRunSize() {
+        assertThrows(IllegalArgumentException.class, () -> new ExternalBreadthFirstSearch(Path.of("."), 0, new DeadlockDetector()), "A run should hold at least one state.");
+    }
+
+}
@@ -0,0 +1,67 @@
+package sokoban.solver;
+
+import org.junit.jupiter.api.Test;
+import sokoban.state.Level;
+import sokoban.state.PackedState;
+import sokoban.state.SokobanState;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdaStarSearchTest {
+
+    private static void assertSolves(PackedState initialState, Solution solution) {
+        var state = initialState.clone();
+        for (var direction : solution.moves()) {
+            assertTrue(state.isLegalMove(direction), "Every move of the solution should be legal.");
+            state.makeMove(direction);
+        }
+        assertTrue(state.isSolved(), "The solution should solve the game.");
+    }
+
+    @Test
+    void testSolveFindsShortestSolution() {
+        var initialState = PackedState.of(new SokobanState());
+        var solution = new IdaStarSearch().solve(initialState).orElseThrow();
+
+        assertEquals(89, solution.length(), "The shortest solution of the built-in level has 89 moves.");
+        assertSolves(initialState, solution);
+        assertEquals(PackedState.of(new SokobanState()), initialState, "The initial state should not be modified.");
+    }
+
+    @Test
+    void testSolveWithSmallTable() {
+        var initialState = PackedState.of(new SokobanState());
+        var solution = new IdaStarSearch(new AssignmentHeuristic(), 1 << 16).solve(initialState).orElseThrow();
+
+        assertEquals(89, solution.length(), "A small table should not affect optimality.");
+        assertSolves(initialState, solution);
+    }
+
+    @Test
+    void testTableSize() {
+        assertEquals(1024, new TranspositionTable(1000).capacity(), "The capacity should be rounded up to a power of two.");
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0), "An empty table should be rejected.");
+    }
+
+    @Test
+    void testTableReusedForAnotherLevel() {
+        var table = new TranspositionTable(1 << 10);
+        var small = PackedState.of(new SokobanState());
+        var large = PackedState.of(Level.parse("""
+                ##########
+                #@$$$$$$ #
+                #   $$$$ #
+                #.....   #
+                #.....   #
+                ##########
+                """).createState());
+        assertNotEquals(small.getWordCount(), large.getWordCount(), "The levels should pack into different numbers of words.");
+
+        assertFalse(table.isReachedCheaper(small, 5), "A new state should not be reached before.");
+        assertFalse(table.isReachedCheaper(large, 5), "A state of another level should not be reached before.");
+        assertTrue(table.isReachedCheaper(large, 5), "The state should be remembered at its new layout.");
+        assertEquals(1, table.size(), "The entries of the other level should be forgotten.");
+        assertFalse(table.isReachedCheaper(small, 5), "Going back to the first level should start over.");
+    }
+
+}
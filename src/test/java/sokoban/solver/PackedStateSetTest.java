@@ -0,0 +1,95 @@
+package sokoban.solver;
+
+import org.junit.jupiter.api.Test;
+import sokoban.state.Direction;
+import sokoban.state.PackedState;
+import sokoban.state.Position;
+import sokoban.state.SokobanState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedStateSetTest {
+
+    private static List<PackedState> distinctStates() {
+        var floor = new ArrayList<Position>();
+        for (var row = 0; row < SokobanState.BOARD_SIZE; row++) {
+            for (var col = 0; col < SokobanState.BOARD_SIZE; col++) {
+                var value = SokobanState.board.getPosition(row, col);
+                if (value != SokobanState.WALL && value != SokobanState.OUT_OF_BOARD) {
+                    floor.add(new Position(row, col));
+                }
+            }
+        }
+        var initialState = PackedState.of(new SokobanState());
+        var states = new ArrayList<PackedState>();
+        for (var player : floor) {
+            for (var i = 0; i < floor.size(); i++) {
+                for (var j = i + 1; j < floor.size(); j++) {
+                    states.add(initialState.withPositions(player, floor.get(i), floor.get(j), new Position(1, 1)));
+                }
+            }
+        }
+        return states;
+    }
+
+    private static void testAddAndContains(boolean offHeap) {
+        var set = new PackedStateSet(1, 0, offHeap);
+        var states = distinctStates();
+        var added = 0;
+        for (var state : states) {
+            if (set.add(state, (byte) (state.getHash() & 0x7F))) {
+                added++;
+            }
+        }
+        assertTrue(set.capacity() > 16, "The set should have grown.");
+        assertEquals(added, set.size(), "Every state added should be counted once.");
+        assertTrue(set.loadFactor() <= 0.75, "The load factor should stay below three quarters.");
+        for (var state : states) {
+            assertTrue(set.contains(state), "Every state added should be found after growing.");
+            assertEquals(state.getHash() & 0x7F, set.getTag(state), "The tag should survive growing.");
+            assertFalse(set.add(state, (byte) 0), "A state should only be added once.");
+        }
+        assertTrue(set.averageProbeLength() >= 1, "Every lookup probes at least one slot.");
+        assertTrue(set.maxProbeLength() >= 1, "Every lookup probes at least one slot.");
+    }
+
+    @Test
+    void testAddAndContainsOnHeap() {
+        testAddAndContains(false);
+    }
+
+    @Test
+    void testAddAndContainsOffHeap() {
+        testAddAndContains(true);
+    }
+
+    @Test
+    void testMissingState() {
+        var state = PackedState.of(new SokobanState());
+        var set = new PackedStateSet(state.getWordCount(), 100);
+        set.add(state);
+        var other = state.clone();
+        other.makeMove(Direction.RIGHT);
+        assertFalse(set.contains(other), "A state never added should not be found.");
+        assertEquals(-1, set.getTag(other), "A state never added should have no tag.");
+        assertEquals(0, set.getTag(state), "The default tag should be zero.");
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new PackedStateSet(0, 10), "States should have at least one word.");
+        assertThrows(IllegalArgumentException.class, () -> new PackedStateSet(1, -1), "The expected size should not be negative.");
+    }
+
+    @Test
+    void testCapacityLimit() {
+        // States of 2^20 words leave room for 128 slots, three quarters of which may be used.
+        var e = assertThrows(IllegalStateException.class, () -> new PackedStateSet(1 << 20, 1000),
+                "A set larger than a buffer can hold should be rejected.");
+        assertEquals("The set cannot hold more than 96 states.", e.getMessage(), "The real limit should be reported.");
+    }
+
+}
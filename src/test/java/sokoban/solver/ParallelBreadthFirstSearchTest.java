@@ -0,0 +1,39 @@
+package sokoban.solver;
+
+import org.junit.jupiter.api.Test;
+import sokoban.state.PackedState;
+import sokoban.state.Position;
+import sokoban.state.SokobanState;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelBreadthFirstSearchTest {
+
+    @Test
+    void testSolveFindsShortestSolution() {
+        var initialState = PackedState.of(new SokobanState());
+        for (var threads : new int[]{1, 4}) {
+            var solution = new ParallelBreadthFirstSearch(threads).solve(initialState).orElseThrow();
+            assertEquals(89, solution.length(), "The shortest solution of the built-in level has 89 moves.");
+
+            var state = initialState.clone();
+            for (var direction : solution.moves()) {
+                assertTrue(state.isLegalMove(direction), "Every move of the solution should be legal.");
+                state.makeMove(direction);
+            }
+            assertTrue(state.isSolved(), "The solution should solve the game.");
+        }
+    }
+
+    @Test
+    void testSolveSolvedState() {
+        var solved = PackedState.of(new SokobanState(new Position(5, 6), new Position(5, 7), new Position(3, 7), new Position(4, 7)));
+        assertEquals(0, new ParallelBreadthFirstSearch(2).solve(solved).orElseThrow().length(), "A solved state needs no moves.");
+    }
+
+    @Test
+    void testInvalidParallelism() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelBreadthFirstSearch(0), "At least one thread should be required.");
+    }
+
+}
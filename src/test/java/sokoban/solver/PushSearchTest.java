@@ -0,0 +1,30 @@
+package sokoban.solver;
+
+import org.junit.jupiter.api.Test;
+import sokoban.state.PackedState;
+import sokoban.state.SokobanState;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PushSearchTest {
+
+    @Test
+    void testSolveExpandsPushesIntoMoves() {
+        var initialState = PackedState.of(new SokobanState());
+        var solution = new PushSearch().solve(initialState).orElseThrow();
+
+        var state = initialState.clone();
+        var pushes = 0;
+        for (var direction : solution.moves()) {
+            assertTrue(state.isLegalMove(direction), "Every move of the solution should be legal.");
+            if (state.isPush(direction)) {
+                pushes++;
+            }
+            state.makeMove(direction);
+        }
+        assertTrue(state.isSolved(), "The solution should solve the game.");
+        assertEquals(31, pushes, "The solution should have the fewest pushes possible.");
+        assertTrue(solution.expanded() < 36000, "Far fewer nodes should be expanded than by a search over single moves.");
+    }
+
+}
@@ -0,0 +1,79 @@
+package sokoban.solver;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import sokoban.state.PackedState;
+import sokoban.state.SokobanState;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchMetricsTest {
+
+    @Test
+    void testCountersAfterSearch() {
+        var search = new AStarSearch();
+        var solution = search.solve(PackedState.of(new SokobanState())).orElseThrow();
+        var metrics = search.getMetrics();
+
+        assertFalse(metrics.isRunning(), "The search should be over.");
+        assertEquals("astar", metrics.getAlgorithm(), "The algorithm should be named.");
+        assertEquals(solution.expanded(), metrics.getExpanded(), "The expanded states should be counted.");
+        assertEquals(solution.generated(), metrics.getGenerated(), "The generated states should be counted.");
+        assertTrue(metrics.getDuplicates() > 0, "Moving back and forth should reach states twice.");
+        assertTrue(metrics.getVisitedSize() > metrics.getFrontierSize(), "Most visited states should be expanded.");
+        assertTrue(metrics.getDepth() >= solution.length(), "The depth of the solution should be reached.");
+        assertTrue(metrics.getNodesPerSecond() > 0, "The speed of the search should be known.");
+    }
+
+    @Test
+    void testRegisteredWhileRunning() throws Exception {
+        var server = ManagementFactory.getPlatformMBeanServer();
+        var query = new ObjectName("sokoban.solver:type=Search,algorithm=\"push\",*");
+        var seen = new ArrayList<Integer>();
+        var search = new PushSearch(new DeadlockDetector() {
+            @Override
+            public boolean isDeadlockAfterPush(PackedState state, sokoban.state.Direction direction) {
+                if (seen.isEmpty()) {
+                    seen.add(server.queryNames(query, null).size());
+                    seen.add(SearchMetrics.running().size());
+                }
+                return super.isDeadlockAfterPush(state, direction);
+            }
+        });
+        search.solve(PackedState.of(new SokobanState())).orElseThrow();
+
+        assertEquals(1, seen.get(0), "The counters should be registered as an MBean during the search.");
+        assertTrue(seen.get(1) >= 1, "The search should be listed as running.");
+        assertTrue(server.queryNames(query, null).isEmpty(), "The MBean should be unregistered afterwards.");
+        assertFalse(SearchMetrics.running().contains(search.getMetrics()), "The search should not be running anymore.");
+    }
+
+    @Test
+    void testFlightRecorderEvent() throws Exception {
+        var file = Files.createTempFile("search", ".jfr");
+        try (var recording = new Recording()) {
+            recording.enable("sokoban.Search");
+            recording.start();
+            var solution = new CompactBreadthFirstSearch().solve(PackedState.of(new SokobanState())).orElseThrow();
+            recording.stop();
+            recording.dump(file);
+
+            var events = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals("sokoban.Search"))
+                    .toList();
+            assertEquals(1, events.size(), "The search should be recorded once.");
+            assertEquals("compact-bfs", events.get(0).getString("algorithm"), "The algorithm should be recorded.");
+            assertTrue(events.get(0).getBoolean("solved"), "The search should be recorded as solved.");
+            assertEquals(solution.expanded(), events.get(0).getLong("expanded"), "The counters should be recorded.");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
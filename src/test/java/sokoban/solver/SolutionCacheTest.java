@@ -0,0 +1,183 @@
+package sokoban.solver;
+
+import org.junit.jupiter.api.Test;
+import sokoban.state.Level;
+import sokoban.state.PackedState;
+import sokoban.state.Position;
+import sokoban.state.SokobanState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolutionCacheTest {
+
+    private static final Level CORRIDOR = Level.parse("""
+            ############
+            #@ $     . #
+            ############
+            """);
+
+    private static final Level TWO_BOXES = Level.parse("""
+            #######
+            #@$ $.#
+            #    .#
+            #######
+            """);
+
+    private static final Level STUCK = Level.parse("""
+            ######
+            #$@ .#
+            ######
+            """);
+
+    private static Function<PackedState, Optional<Solution>> search(Level level) {
+        return new AStarSearch(new AssignmentHeuristic(level.board()), new DeadlockDetector(level.board()))::solve;
+    }
+
+    private static void deleteAll(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            for (var file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    void testFingerprint() {
+        var fingerprint = SolutionCache.fingerprint(CORRIDOR.createState());
+
+        assertEquals(64, fingerprint.length(), "The fingerprint should be a SHA-256 digest.");
+        assertEquals(fingerprint, SolutionCache.fingerprint(CORRIDOR.createState()),
+                "The fingerprint should not change between runs.");
+        var swapped = new SokobanState(TWO_BOXES.board(),
+                new Position(1, 1), new Position(1, 4), new Position(1, 2));
+        assertEquals(SolutionCache.fingerprint(TWO_BOXES.createState()), SolutionCache.fingerprint(swapped),
+                "Levels differing only in the order of the boxes should be the same.");
+        assertNotEquals(fingerprint, SolutionCache.fingerprint(STUCK.createState()),
+                "Different levels should have different fingerprints.");
+    }
+
+    @Test
+    void testMemoryAndDiskHits() throws IOException {
+        var directory = Files.createTempDirectory("solution-cache-test");
+        try {
+            var initialState = PackedState.of(CORRIDOR.createState());
+            var cache = new SolutionCache(directory, 10);
+
+            var found = cache.solve(initialState, SolutionCache.Objective.MOVES, search(CORRIDOR)).orElseThrow();
+            var cached = cache.solve(initialState, SolutionCache.Objective.MOVES, state -> {
+                throw new AssertionError("The cached solution should be used.");
+            }).orElseThrow();
+
+            assertEquals(found.moves(), cached.moves(), "The cached solution should be the one found.");
+            assertEquals(0, cached.expanded(), "No state should be expanded for a cached solution.");
+            assertEquals(1, cache.getMemoryHits(), "The second lookup should be answered from memory.");
+            assertEquals(1, cache.getMisses(), "Only the first lookup should search.");
+
+            var reopened = new SolutionCache(directory, 10);
+            var stored = reopened.solve(initialState, SolutionCache.Objective.MOVES, state -> {
+                throw new AssertionError("The stored solution should be used.");
+            }).orElseThrow();
+            assertEquals(found.moves(), stored.moves(), "The solution should be read back from disk.");
+            assertEquals(1, reopened.getDiskHits(), "The lookup should be answered from disk.");
+
+            var pushes = reopened.solve(initialState, SolutionCache.Objective.PUSHES, search(CORRIDOR));
+            assertTrue(pushes.isPresent(), "The level should be solved again for another objective.");
+            assertEquals(1, reopened.getMisses(), "Each objective should be cached separately.");
+        } finally {
+            deleteAll(directory);
+        }
+    }
+
+    @Test
+    void testUnsolvableIsNotCached() throws IOException {
+        var directory = Files.createTempDirectory("solution-cache-test");
+        try {
+            var initialState = PackedState.of(STUCK.createState());
+            var cache = new SolutionCache(directory, 10);
+            cache.solve(initialState, SolutionCache.Objective.MOVES, search(STUCK));
+            var solution = cache.solve(initialState, SolutionCache.Objective.MOVES, search(STUCK));
+
+            assertTrue(solution.isEmpty(), "There should be no solution for an unsolvable level.");
+            assertEquals(2, cache.getMisses(), "An unsolvable level should be searched every time.");
+            try (var files = Files.list(directory)) {
+                assertEquals(0, files.count(), "Nothing should be written for an unsolvable level.");
+            }
+        } finally {
+            deleteAll(directory);
+        }
+    }
+
+    @Test
+    void testFailedWriteLeavesNoTemporaryFile() throws IOException {
+        var directory = Files.createTempDirectory("solution-cache-test");
+        var initialState = PackedState.of(CORRIDOR.createState());
+        var key = SolutionCache.fingerprint(CORRIDOR.createState()) + ".moves";
+        // A directory in the way of the solution file makes the move fail.
+        var blocker = Files.createDirectory(directory.resolve(key));
+        Files.createFile(blocker.resolve("file"));
+        try {
+            var cache = new SolutionCache(directory, 10);
+            assertThrows(UncheckedIOException.class,
+                    () -> cache.solve(initialState, SolutionCache.Objective.MOVES, search(CORRIDOR)),
+                    "A solution that cannot be stored should be reported.");
+            try (var files = Files.list(directory)) {
+                assertEquals(List.of(blocker), files.toList(), "The temporary file should be deleted.");
+            }
+        } finally {
+            deleteAll(blocker);
+            deleteAll(directory);
+        }
+    }
+
+    @Test
+    void testDamagedFileIsMiss() throws IOException {
+        var directory = Files.createTempDirectory("solution-cache-test");
+        try {
+            var initialState = PackedState.of(CORRIDOR.createState());
+            new SolutionCache(directory, 10).solve(initialState, SolutionCache.Objective.MOVES, search(CORRIDOR));
+            try (var files = Files.list(directory)) {
+                for (var file : files.toList()) {
+                    var bytes = Files.readAllBytes(file);
+                    bytes[bytes.length - 1] ^= 0x55;
+                    Files.write(file, bytes);
+                }
+            }
+
+            var cache = new SolutionCache(directory, 10);
+            var solution = cache.solve(initialState, SolutionCache.Objective.MOVES, search(CORRIDOR));
+            assertTrue(solution.isPresent(), "The level should be solved again.");
+            assertEquals(0, cache.getDiskHits(), "A damaged solution should not be used.");
+            assertEquals(1, cache.getMisses(), "A damaged solution should be a miss.");
+        } finally {
+            deleteAll(directory);
+        }
+    }
+
+    @Test
+    void testBatchSolverUsesCache() throws IOException {
+        var directory = Files.createTempDirectory("solution-cache-test");
+        try {
+            var cache = new SolutionCache(directory, 10);
+            var levels = List.of(Level.builtIn(), CORRIDOR);
+            new BatchSolver("astar", 2, Duration.ofMinutes(1), Long.MAX_VALUE, cache).solveAll(levels);
+
+            var report = new BatchSolver("astar", 2, Duration.ofMinutes(1), Long.MAX_VALUE, cache).solveAll(levels);
+            assertEquals(2, report.solved(), "Both levels should be solved.");
+            assertEquals(2, cache.getMemoryHits(), "The second batch should be answered from the cache.");
+            assertEquals(0, (long) report.levels().get(0).expanded(), "No state should be expanded for a cached level.");
+        } finally {
+            deleteAll(directory);
+        }
+    }
+
+}
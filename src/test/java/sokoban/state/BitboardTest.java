@@ -0,0 +1,82 @@
+package sokoban.state;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitboardTest {
+
+    @Test
+    void testSetAndGet() {
+        var bitboard = new Bitboard(200);
+        bitboard.set(0);
+        bitboard.set(63);
+        bitboard.set(64);
+        bitboard.set(199);
+        assertTrue(bitboard.get(63), "The last cell of the first word should be set.");
+        assertTrue(bitboard.get(64), "The first cell of the second word should be set.");
+        assertFalse(bitboard.get(65), "Cells never set should not be set.");
+        assertEquals(4, bitboard.cardinality(), "Four cells should be set.");
+        bitboard.clear(63);
+        assertFalse(bitboard.get(63), "A cleared cell should not be set.");
+        assertEquals(64, bitboard.nextSetBit(1), "The next cell should be found in the next word.");
+        assertEquals(199, bitboard.nextSetBit(65), "The last cell should be found.");
+        assertEquals(-1, bitboard.nextSetBit(200), "There should be no cell past the end.");
+    }
+
+    @Test
+    void testOrShifted() {
+        var source = new Bitboard(200);
+        source.set(10);
+        source.set(60);
+        source.set(150);
+
+        var left = new Bitboard(200);
+        left.orShifted(source, 71);
+        assertEquals("{81, 131}", left.toString(), "Cells should move across words, those past the end dropped.");
+
+        var right = new Bitboard(200);
+        right.orShifted(source, -11);
+        assertEquals("{49, 139}", right.toString(), "Cells should move back across words, those before the start dropped.");
+
+        var same = new Bitboard(200);
+        same.orShifted(source, 0);
+        assertEquals(source, same, "A shift by zero should copy the cells.");
+    }
+
+    @Test
+    void testSetOperations() {
+        var a = new Bitboard(100);
+        var b = new Bitboard(100);
+        a.set(1);
+        a.set(70);
+        b.set(70);
+        assertTrue(a.containsAll(b), "Every cell of b is in a.");
+        assertFalse(b.containsAll(a), "The cell 1 is not in b.");
+        var union = a.copy();
+        union.or(b);
+        assertEquals(a, union, "The union with a subset should not change the set.");
+        var difference = a.copy();
+        difference.andNot(b);
+        assertEquals("{1}", difference.toString(), "Only the cell 1 should be left.");
+        difference.and(b);
+        assertTrue(difference.isEmpty(), "The sets should not intersect any more.");
+    }
+
+    @Test
+    void testFloodAgreesWithWalks() {
+        var state = PackedState.of(new SokobanState());
+        var board = state.toSokobanState().getBoard();
+        var reachable = state.getReachable();
+        for (var row = 0; row < board.height(); row++) {
+            for (var col = 0; col < board.width(); col++) {
+                var cell = board.cellOf(row, col);
+                var walkable = board.isFloor(cell) && state.findWalk(new Position(row, col)).isPresent();
+                assertEquals(walkable, reachable.get(cell),
+                        "The flood fill should reach (" + row + ", " + col + ") only if the player can walk there.");
+            }
+        }
+        assertEquals(5, reachable.cardinality(), "The boxes should leave the player 5 squares at first.");
+    }
+
+}
@@ -15,6 +15,22 @@ class DirectionTest {
         assertSame(Direction.LEFT, Direction.of(0, -1));
     }
 
+    @Test
+    void mask() {
+        var mask = Direction.RIGHT.mask() | Direction.LEFT.mask();
+        assertSame(Direction.RIGHT, Direction.fromMask(mask));
+        assertSame(Direction.LEFT, Direction.fromMask(mask & (mask - 1)));
+        assertSame(Direction.UP, Direction.fromMask(Direction.UP.mask()));
+    }
+
+    @Test
+    void opposite() {
+        assertSame(Direction.DOWN, Direction.UP.opposite());
+        assertSame(Direction.LEFT, Direction.RIGHT.opposite());
+        assertSame(Direction.UP, Direction.DOWN.opposite());
+        assertSame(Direction.RIGHT, Direction.LEFT.opposite());
+    }
+
     @Test
     void of_shouldThrowIllegalArgumentException() {
         assertThrows(IllegalArgumentException.class, () -> Direction.of(0, 0));
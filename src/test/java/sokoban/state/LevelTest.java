@@ -0,0 +1,105 @@
+package sokoban.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LevelTest {
+
+    private static final String BUILT_IN = """
+            #####
+            #@  #
+            # $$# ###
+            # $ # #.#
+            ### ###.#
+             ##    .#
+             #   #  #
+             #   ####
+             #####
+            """;
+
+    @Test
+    void testParseBuiltInLevel() {
+        var level = Level.parse(BUILT_IN);
+        var expected = new Map();
+        for (var row = 0; row < expected.height(); row++) {
+            for (var col = 0; col < expected.width(); col++) {
+                assertEquals(expected.getPosition(row, col), level.board().getPosition(row, col),
+                        "The square (" + row + ", " + col + ") should match the built-in board.");
+            }
+        }
+        assertEquals(Level.builtIn().positions().get(0), level.positions().get(0), "The player should be at (1, 1).");
+        assertEquals(List.of(new Position(2, 2), new Position(2, 3), new Position(3, 2)),
+                level.positions().subList(1, 4), "The boxes should be read in row-major order.");
+        assertEquals(3, level.getBoxCount(), "The built-in level has 3 boxes.");
+        assertEquals("Level 1", level.name(), "An unnamed level should get a default name.");
+    }
+
+    @Test
+    void testParseAllWithNames() {
+        var levels = Level.parseAll("""
+                ; First
+                
+                ##########
+                #@ $   . #
+                ##########
+                
+                ######
+                #+*$ #
+                #    #
+                ######
+                Title: Second
+                """);
+        assertEquals(2, levels.size(), "Both levels should be read.");
+        assertEquals("First", levels.get(0).name(), "A comment before the level should name it.");
+        assertEquals("Second", levels.get(1).name(), "A title after the level should name it.");
+        assertEquals(10, levels.get(0).board().width(), "The first level is 10 squares wide.");
+        assertEquals(3, levels.get(0).board().height(), "The first level is 3 squares high.");
+        assertEquals(2, levels.get(1).getBoxCount(), "The second level has 2 boxes.");
+        assertTrue(levels.get(1).board().isTarget(1, 1), "The player should stand on a target.");
+        assertTrue(levels.get(1).board().isTarget(1, 2), "The box should stand on a target.");
+    }
+
+    @Test
+    void testInvalidLevels() {
+        assertThrows(IllegalArgumentException.class, () -> Level.parse("#####\n# $.#\n#####"),
+                "A level without a player should be rejected.");
+        assertThrows(IllegalArgumentException.class, () -> Level.parse("######\n#@$.@#\n######"),
+                "A level with two players should be rejected.");
+        assertThrows(IllegalArgumentException.class, () -> Level.parse("#####\n#@$. \n#####"),
+                "A level not surrounded by walls should be rejected.");
+        assertThrows(IllegalArgumentException.class, () -> Level.parse("######\n#@$$.#\n######"),
+                "A level with more boxes than targets should be rejected.");
+        assertThrows(IllegalArgumentException.class, () -> Level.parse("no level here"),
+                "A text without a level should be rejected.");
+    }
+
+    @Test
+    void testLoad() throws Exception {
+        var file = Files.createTempFile("levels", ".xsb");
+        try {
+            Files.writeString(file, BUILT_IN + "\n" + BUILT_IN);
+            var levels = Level.load(file);
+            assertEquals(2, levels.size(), "Both levels of the file should be read.");
+            assertEquals("Level 2", levels.get(1).name(), "Unnamed levels should be numbered.");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testCreateState() {
+        var state = Level.parse("############\n#@ $     . #\n############").createState();
+        assertEquals(1, state.getBoxCount(), "The state should have a single box.");
+        for (var i = 0; i < 7; i++) {
+            assertTrue(state.isLegalMove(Direction.RIGHT), "The box should be pushable along the whole corridor.");
+            state.makeMove(Direction.RIGHT);
+        }
+        assertTrue(state.isSolved(), "The box should end up on the target in column 9.");
+    }
+
+}
@@ -4,6 +4,8 @@ package sokoban.state;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class MapTest {
@@ -19,6 +21,25 @@ public class MapTest {
         assertEquals(9, map.width(), "The width of the board should be 9.");
     }
 
+    @Test
+    void testHeight() {
+        assertEquals(9, map.height(), "The height of the board should be 9.");
+    }
+
+    @Test
+    void testTargets() {
+        assertEquals(List.of(new Position(3, 7), new Position(4, 7), new Position(5, 7)), map.getTargets(),
+                "The targets should be listed in row-major order.");
+        assertTrue(map.isTarget(4, 7), "The position (4, 7) should be a target.");
+        assertFalse(map.isTarget(1, 1), "The position (1, 1) should not be a target.");
+    }
+
+    @Test
+    void testNonRectangularBoard() {
+        assertThrows(IllegalArgumentException.class, () -> new Map(new char[][]{{'#', '#'}, {'#'}}),
+                "Rows of different lengths should be rejected.");
+    }
+
     @Test
     void testGetPosition() {
         assertEquals('#', map.getPosition(0, 0), "The position (0, 0) should contain '#'.");
@@ -27,6 +48,49 @@ public class MapTest {
         assertEquals('-', map.getPosition(5, 0), "The position (5, 0) should contain '-'.");
     }
 
+    @Test
+    void testIsDeadSquare() {
+        assertTrue(map.isDeadSquare(1, 1), "The corner (1, 1) should be a dead square.");
+        assertTrue(map.isDeadSquare(1, 2), "The wall side (1, 2) should be a dead square.");
+        assertTrue(map.isDeadSquare(6, 6), "The corner (6, 6) should be a dead square.");
+        assertFalse(map.isDeadSquare(2, 2), "The box can be pushed from (2, 2) to a target.");
+        assertFalse(map.isDeadSquare(5, 4), "The box can be pushed from (5, 4) to a target.");
+        assertFalse(map.isDeadSquare(3, 7), "Targets should never be dead squares.");
+        assertFalse(map.isDeadSquare(0, 0), "Walls should not be dead squares.");
+    }
+
+    @Test
+    void testPushDistances() {
+        assertEquals(0, map.getPushDistance(0, 3, 7), "A box on a target should need no push.");
+        assertEquals(4, map.getPushDistance(0, 5, 5), "The box should be pushed right twice and up twice.");
+        assertEquals(2, map.getPushDistance(2, 5, 5), "The box should be pushed right twice.");
+        assertEquals(2, map.getPushDistance(5, 5), "The nearest target should be two pushes away.");
+        assertEquals(10, map.getPushDistance(2, 2), "The box should go around the wall at (5, 2) to the targets.");
+        assertEquals(Map.UNREACHABLE, map.getPushDistance(0, 1, 1), "No box can leave a corner.");
+        assertEquals(Map.UNREACHABLE, map.getPushDistance(6, 6), "Dead squares should be unreachable from every target.");
+        assertEquals(Map.UNREACHABLE, map.getPushDistance(0, 0), "Walls should be unreachable.");
+    }
+
+    @Test
+    void testPositionTable() {
+        var position = map.positionAt(2, 3);
+        assertEquals(new Position(2, 3), position, "The position should have the coordinates given.");
+        assertSame(position, map.positionAt(2, 3), "The same position should be returned every time.");
+        assertSame(position, map.positionOf(map.cellOf(position)), "The position of a cell should be the same one.");
+        assertSame(map.positionAt(3, 3), map.move(position, Direction.DOWN), "Moving should return the position of the map.");
+        assertEquals(map.cellOf(2, 4), map.neighbor(map.cellOf(position), Direction.RIGHT), "The neighbor should be the next cell.");
+        assertEquals(new Position(-1, -1), map.positionOf(0), "The border should have positions too.");
+    }
+
+    @Test
+    void testZobristKeys() {
+        var other = new Map();
+        assertEquals(map.getPlayerKey(1, 1), other.getPlayerKey(1, 1), "Keys should be the same for every map.");
+        assertEquals(map.getBoxKey(2, 2), other.getBoxKey(2, 2), "Keys should be the same for every map.");
+        assertNotEquals(map.getPlayerKey(1, 1), map.getBoxKey(1, 1), "The player and a box should have different keys.");
+        assertNotEquals(map.getBoxKey(1, 1), map.getBoxKey(1, 2), "Different positions should have different keys.");
+    }
+
     @Test
     void testGetPositionOutOfBounds() {
         assertThrows(ArrayIndexOutOfBoundsException.class, () -> map.getPosition(-1, 0), "Accessing out of bounds should throw an exception.");
@@ -0,0 +1,270 @@
+package sokoban.state;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedStateTest {
+
+    private PackedState state;
+
+    @BeforeEach
+    void setUp() {
+        state = PackedState.of(new SokobanState());
+    }
+
+    @Test
+    void testInitialPositions() {
+        assertEquals(new Position(1, 1), state.getPosition(SokobanState.PLAYER_POSITION), "Initial player position should be (1, 1).");
+        assertEquals(new Position(2, 2), state.getPosition(SokobanState.FIRST_BOX_POSITION), "Initial first box position should be (2, 2).");
+        assertEquals(new Position(2, 3), state.getPosition(SokobanState.SECOND_BOX_POSITION), "The boxes should be sorted, (2, 3) coming second.");
+        assertEquals(new Position(3, 2), state.getPosition(SokobanState.THIRD_BOX_POSITION), "The boxes should be sorted, (3, 2) coming third.");
+        assertEquals(3, state.getBoxCount(), "There should be three boxes.");
+    }
+
+    @Test
+    void testInvalidPositions() {
+        assertThrows(IllegalArgumentException.class, () -> new PackedState(new Map(), new Position(1, 1)), "A box should be required.");
+        assertThrows(IllegalArgumentException.class, () -> new PackedState(new Map(), new Position(0, 0), new Position(2, 2)), "Walls should be rejected.");
+        assertThrows(IllegalArgumentException.class, () -> new PackedState(new Map(), new Position(1, 1), new Position(9, 2)), "Positions outside the board should be rejected.");
+    }
+
+    @Test
+    void testIsLegalMove() {
+        assertTrue(state.isLegalMove(Direction.RIGHT), "Moving right should be a legal move.");
+        assertTrue(state.isLegalMove(Direction.DOWN), "Moving down should be a legal move.");
+        assertFalse(state.isLegalMove(Direction.LEFT), "Moving left should not be a legal move initially.");
+        assertFalse(state.isLegalMove(Direction.UP), "Moving up should not be a legal move initially.");
+    }
+
+    @Test
+    void testMakeMovePushesBox() {
+        state.makeMove(Direction.DOWN);
+        state.makeMove(Direction.DOWN);
+        state.makeMove(Direction.RIGHT);
+        assertEquals(new Position(3, 2), state.getPosition(SokobanState.PLAYER_POSITION), "Player position should be (3, 2).");
+        assertEquals(new Position(3, 3), state.getPosition(SokobanState.THIRD_BOX_POSITION), "The box pushed to (3, 3) should come last.");
+        assertFalse(state.isLegalMove(Direction.RIGHT), "A box should not be pushed into a wall.");
+    }
+
+    @Test
+    void testUndoMove() {
+        state.makeMove(Direction.DOWN);
+        state.makeMove(Direction.DOWN);
+        var before = state.clone();
+
+        assertTrue(state.isPush(Direction.RIGHT), "Moving right from (3, 1) should push a box.");
+        assertFalse(state.isPush(Direction.UP), "Moving up from (3, 1) should not push a box.");
+
+        state.makeMove(Direction.RIGHT);
+        state.undoMove(Direction.RIGHT, true);
+        assertEquals(before, state, "Undoing a push should restore the box and the player.");
+
+        state.makeMove(Direction.UP);
+        state.undoMove(Direction.UP, false);
+        assertEquals(before, state, "Undoing a step should restore the player.");
+    }
+
+    @Test
+    void testCanUndoMove() {
+        assertFalse(state.canUndoMove(Direction.DOWN, false), "The player should not step back into a wall.");
+        assertTrue(state.canUndoMove(Direction.LEFT, false), "The player should step back to (1, 2).");
+        assertFalse(state.canUndoMove(Direction.LEFT, true), "There is no box to pull from (1, 0).");
+
+        var pulling = state.withPositions(new Position(3, 3), new Position(2, 2), new Position(3, 2), new Position(2, 3));
+        assertTrue(pulling.canUndoMove(Direction.UP, true), "The box at (2, 3) should be pulled to (3, 3).");
+        pulling.undoMove(Direction.UP, true);
+        assertEquals(new Position(4, 3), pulling.getPosition(SokobanState.PLAYER_POSITION), "The player should step back to (4, 3).");
+        assertEquals(new Position(3, 3), pulling.getPosition(SokobanState.THIRD_BOX_POSITION), "The box should be pulled to (3, 3).");
+    }
+
+    @Test
+    void testWithPositions() {
+        var other = state.withPositions(new Position(1, 2), new Position(2, 2), new Position(3, 2), new Position(2, 3));
+        state.makeMove(Direction.RIGHT);
+        assertEquals(state, other, "The state should be equal to the one created with the same positions.");
+        assertThrows(IllegalArgumentException.class, () -> state.withPositions(new Position(1, 2)), "All positions should be required.");
+    }
+
+    @Test
+    void testBoxPermutationsAreEqual() {
+        var permuted = state.withPositions(new Position(1, 1), new Position(3, 2), new Position(2, 3), new Position(2, 2));
+        assertEquals(state, permuted, "States differing only in the order of the boxes should be equal.");
+        assertEquals(state.hashCode(), permuted.hashCode(), "States differing only in the order of the boxes should have the same hash code.");
+
+        state.makeMove(Direction.DOWN);
+        state.makeMove(Direction.DOWN);
+        state.makeMove(Direction.RIGHT);
+        state.undoMove(Direction.RIGHT, true);
+        state.undoMove(Direction.DOWN, false);
+        state.undoMove(Direction.DOWN, false);
+        assertEquals(permuted, state, "The boxes should stay sorted after pushing and pulling.");
+    }
+
+    @Test
+    void testIncrementalHash() {
+        for (var direction : ReadmeSolution.MOVES) {
+            var pushed = state.isPush(direction);
+            state.makeMove(direction);
+            var rebuilt = state.withPositions(state.getPosition(0), state.getPosition(1), state.getPosition(2), state.getPosition(3));
+            assertEquals(rebuilt.getHash(), state.getHash(), "The incremental hash should match the one computed from scratch.");
+            var undone = state.clone();
+            undone.undoMove(direction, pushed);
+            undone.makeMove(direction);
+            assertEquals(state.getHash(), undone.getHash(), "Undoing and redoing a move should restore the hash.");
+        }
+    }
+
+    @Test
+    void testNormalizePlayer() {
+        var other = state.clone();
+        other.makeMove(Direction.DOWN);
+        other.makeMove(Direction.DOWN);
+        assertNotEquals(state, other, "The player should stand elsewhere before normalization.");
+
+        state.normalizePlayer();
+        other.normalizePlayer();
+        assertEquals(state, other, "States in the same player region should be equal after normalization.");
+        assertEquals(new Position(1, 1), state.getPosition(SokobanState.PLAYER_POSITION), "The top-left-most square should be chosen.");
+    }
+
+    @Test
+    void testGetLegalPushes() {
+        var expected = List.of(new Push(new Position(2, 3), Direction.DOWN), new Push(new Position(3, 2), Direction.RIGHT));
+        assertEquals(expected, state.getLegalPushes(), "Only the box at (2, 3) can be pushed down and the one at (3, 2) right.");
+    }
+
+    @Test
+    void testMakePushAndFindWalk() {
+        var walk = state.findWalk(new Position(3, 1)).orElseThrow();
+        assertEquals(List.of(Direction.DOWN, Direction.DOWN), walk, "The player should walk down twice to (3, 1).");
+        assertTrue(state.findWalk(new Position(5, 3)).isEmpty(), "The boxes should block the way to (5, 3).");
+
+        state.makePush(new Push(new Position(3, 2), Direction.RIGHT));
+        assertEquals(new Position(3, 2), state.getPosition(SokobanState.PLAYER_POSITION), "The player should stand where the box was.");
+        assertEquals(new Position(3, 3), state.getPosition(SokobanState.THIRD_BOX_POSITION), "The box should be pushed to (3, 3).");
+    }
+
+    @Test
+    void testGetLegalMoves() {
+        assertEquals(Set.of(Direction.RIGHT, Direction.DOWN), state.getLegalMoves(), "Legal moves should be RIGHT and DOWN.");
+    }
+
+    @Test
+    void testGetSuccessors() {
+        assertEquals(Direction.RIGHT.mask() | Direction.DOWN.mask(), state.getLegalMoveMask(), "Legal moves should be RIGHT and DOWN.");
+
+        var successors = new PackedState[4];
+        var mask = state.getSuccessors(successors);
+        assertEquals(state.getLegalMoveMask(), mask, "The successors of the legal moves should be written.");
+        assertNull(successors[Direction.LEFT.ordinal()], "No successor should be written for an illegal move.");
+        var right = state.clone();
+        right.makeMove(Direction.RIGHT);
+        assertEquals(right, successors[Direction.RIGHT.ordinal()], "The successor should be the state after the move.");
+        assertEquals(right.hashCode(), successors[Direction.RIGHT.ordinal()].hashCode(), "The successor should have the hash of the state after the move.");
+
+        var reused = successors[Direction.RIGHT.ordinal()];
+        right.getSuccessors(successors);
+        assertSame(reused, successors[Direction.RIGHT.ordinal()], "The states of the buffer should be reused.");
+        var twiceRight = right.clone();
+        twiceRight.makeMove(Direction.RIGHT);
+        assertEquals(twiceRight, reused, "The reused state should be overwritten with the new successor.");
+        assertEquals(new Position(1, 2), right.getPosition(SokobanState.PLAYER_POSITION), "Generating successors should not move the state.");
+    }
+
+    @Test
+    void testCloneAndEquals() {
+        PackedState clonedState = state.clone();
+        assertEquals(state, clonedState, "Cloned state should be equal to the original state.");
+        assertEquals(state.hashCode(), clonedState.hashCode(), "Hash codes of equal states should be the same.");
+
+        clonedState.makeMove(Direction.RIGHT);
+        assertNotEquals(state, clonedState, "Moving the clone should not affect the original state.");
+        assertEquals(new Position(1, 1), state.getPosition(SokobanState.PLAYER_POSITION), "Original player should stay at (1, 1).");
+    }
+
+    @Test
+    void testStatesOfDifferentBoardsAreNotEqual() {
+        var open = PackedState.of(Level.parse("""
+                ######
+                #@$ .#
+                #    #
+                ######
+                """).createState());
+        var walled = PackedState.of(Level.parse("""
+                ######
+                #@$ .#
+                #  ###
+                ######
+                """).createState());
+        assertEquals(open.hashCode(), walled.hashCode(), "Boards of the same size should share their Zobrist keys.");
+        assertNotEquals(open, walled, "States of different boards should not be equal.");
+    }
+
+    @Test
+    void testAgreesWithSokobanState() {
+        var sokobanState = new SokobanState();
+        for (var direction : ReadmeSolution.MOVES) {
+            for (var move : Direction.values()) {
+                var expected = sokobanState.isLegalMove(move) && !isPushOntoDeadSquare(sokobanState, move);
+                assertEquals(expected, state.isLegalMove(move), "Legal moves should agree with SokobanState, except for pushes onto dead squares.");
+            }
+            sokobanState.makeMove(direction);
+            state.makeMove(direction);
+            assertEquals(PackedState.of(sokobanState), state, "Positions should agree with SokobanState.");
+        }
+    }
+
+    private static boolean isPushOntoDeadSquare(SokobanState sokobanState, Direction direction) {
+        var next = sokobanState.getPosition(SokobanState.PLAYER_POSITION).move(direction);
+        var beyond = next.move(direction);
+        for (var i = SokobanState.FIRST_BOX_POSITION; i <= SokobanState.THIRD_BOX_POSITION; i++) {
+            if (sokobanState.getPosition(i).equals(next)) {
+                return SokobanState.board.isDeadSquare(beyond.row(), beyond.col());
+            }
+        }
+        return false;
+    }
+
+    @Test
+    void testDeadSquarePush() {
+        var nextToDeadSquare = state.withPositions(new Position(3, 2), new Position(2, 2), new Position(3, 3), new Position(2, 3));
+        assertFalse(nextToDeadSquare.isLegalMove(Direction.UP), "The box at (2, 2) should not be pushed onto the dead square (1, 2).");
+        assertTrue(nextToDeadSquare.isLegalMove(Direction.LEFT), "Stepping onto a dead square without a box should be legal.");
+    }
+
+    @Test
+    void testSolvingGame() {
+        for (var direction : ReadmeSolution.MOVES) {
+            assertFalse(state.isSolved(), "The game should not be solved before the last move.");
+            assertTrue(state.isLegalMove(direction), "Every move of the solution should be legal.");
+            state.makeMove(direction);
+        }
+        assertTrue(state.isSolved(), "The game should be solved after the solution from the README.");
+    }
+
+    @Test
+    void testBoxesOnTargets() {
+        var almost = state.withPositions(new Position(5, 5), new Position(3, 7), new Position(4, 7), new Position(5, 6));
+        assertEquals(2, almost.getBoxesOnTargets(), "Two boxes should start on targets.");
+        almost.makeMove(Direction.RIGHT);
+        assertEquals(3, almost.getBoxesOnTargets(), "Pushing the last box onto its target should count it.");
+        assertTrue(almost.isSolved(), "The game should be solved with every box on a target.");
+        assertEquals(3, almost.clone().getBoxesOnTargets(), "A copy should keep the count.");
+        assertEquals(3, state.withWords(almost.getWord(0)).getBoxesOnTargets(), "The count should be restored from the words.");
+
+        almost.undoMove(Direction.RIGHT, true);
+        assertEquals(2, almost.getBoxesOnTargets(), "Pulling the box back should uncount it.");
+        assertFalse(almost.isSolved(), "The game should not be solved after the undo.");
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("[Player: (1,1), Box1: (2,2), Box2: (2,3), Box3: (3,2)]", state.toString(), "toString method should return the correct string representation.");
+    }
+
+}
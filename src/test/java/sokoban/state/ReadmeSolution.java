@@ -0,0 +1,27 @@
+package sokoban.state;
+
+import java.util.List;
+
+import static sokoban.state.Direction.*;
+
+/**
+ * The solution of the built-in level as listed in the README.
+ */
+final class ReadmeSolution {
+
+    static final List<Direction> MOVES = List.of(
+            RIGHT, RIGHT, DOWN, DOWN, DOWN, DOWN, RIGHT, DOWN, DOWN, LEFT,
+            LEFT, UP, RIGHT, DOWN, RIGHT, UP, LEFT, UP, UP, UP,
+            UP, UP, LEFT, LEFT, DOWN, RIGHT, UP, RIGHT, DOWN, DOWN,
+            DOWN, DOWN, RIGHT, RIGHT, RIGHT, DOWN, RIGHT, UP, UP, DOWN,
+            LEFT, LEFT, LEFT, DOWN, DOWN, LEFT, LEFT, UP, RIGHT, DOWN,
+            RIGHT, UP, LEFT, UP, UP, UP, UP, LEFT, LEFT, DOWN,
+            RIGHT, UP, RIGHT, DOWN, DOWN, DOWN, RIGHT, RIGHT, RIGHT, DOWN,
+            RIGHT, UP, LEFT, LEFT, LEFT, DOWN, DOWN, LEFT, LEFT, UP,
+            RIGHT, DOWN, RIGHT, UP, LEFT, UP, RIGHT, RIGHT, RIGHT
+    );
+
+    private ReadmeSolution() {
+    }
+
+}
@@ -56,6 +56,35 @@ class SokobanStateTest {
         assertTrue(legalMoves.contains(Direction.DOWN), "Legal moves should contain DOWN.");
     }
 
+    @Test
+    void testGetSuccessors() {
+        assertEquals(Direction.RIGHT.mask() | Direction.DOWN.mask(), state.getLegalMoveMask(), "Legal moves should be RIGHT and DOWN.");
+
+        var successors = new SokobanState[4];
+        state.getSuccessors(successors);
+        var down = state.clone();
+        down.makeMove(Direction.DOWN);
+        assertEquals(down, successors[Direction.DOWN.ordinal()], "The successor should be the state after the move.");
+
+        var reused = successors[Direction.DOWN.ordinal()];
+        down.getSuccessors(successors);
+        assertSame(reused, successors[Direction.DOWN.ordinal()], "The states of the buffer should be reused.");
+        var push = down.clone();
+        push.makeMove(Direction.DOWN);
+        assertEquals(push, reused, "The reused state should be overwritten with the new successor.");
+        assertEquals(push.getLegalMoveMask(), reused.getLegalMoveMask(), "The boxes of the reused state should be updated too.");
+    }
+
+    @Test
+    void testPositionsAreInterned() {
+        var board = state.getBoard();
+        assertSame(board.positionAt(1, 1), state.getPosition(SokobanState.PLAYER_POSITION), "The positions should be the ones of the board.");
+        state.makeMove(Direction.DOWN);
+        assertSame(board.positionAt(2, 1), state.getPosition(SokobanState.PLAYER_POSITION), "Moving should not create positions.");
+        assertSame(state.getPosition(SokobanState.FIRST_BOX_POSITION), state.clone().getPosition(SokobanState.FIRST_BOX_POSITION),
+                "A copy should share the positions.");
+    }
+
     @Test
     void testClone() {
         SokobanState clonedState = state.clone();
@@ -172,7 +201,9 @@ class SokobanStateTest {
     void testSolvingGame() {
         // Move player to (5,6) and boxes to finish positions
         state = new SokobanState(new Position(5, 5), new Position(3, 7), new Position(4, 7), new Position(5, 6));
+        assertEquals(2, state.getBoxesOnTargets(), "Two boxes should start on targets.");
         state.makeMove(Direction.RIGHT);
+        assertEquals(3, state.getBoxesOnTargets(), "Pushing the last box onto its target should count it.");
         assertTrue(state.isSolved(), "The game should be solved when all boxes are in the finish positions.");
     }
 